@@ -0,0 +1,105 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that planners can run at the same time: PLANNERS planners of one synthetic problem (see SyntheticInstance),
+ * sharing its Problem and DistanceCache, are run one after the other, then all at once on threads of their own,
+ * every other one generating its neighbourhood on PlannerPool. A planner only depends on its seed, so both runs must
+ * give the same best solutions. main() prints the cost of every planner and exits with status 1 if the runs differ.
+ */
+public class ConcurrencyCheck
+{
+    private static final int CITIES = 50;
+    private static final int TASKS = 100;
+    private static final int VEHICLES = 6;
+    private static final int PLANNERS = 6;
+    private static final int ITERATIONS = 2000;
+    private static final int ROUNDS = 3;
+    private static final long TIMEOUT_SECONDS = 600;
+
+    public static void main(String[] args)
+    {
+        final Problem problem = SyntheticInstance.create(CITIES, TASKS, VEHICLES, 1);
+        final SearchSettings settings = new SearchSettings();
+        final ForkJoinPool pool = PlannerPool.get();
+        // one thread per planner, so that they run at the same time whatever the number of cores
+        ForkJoinPool planners = new ForkJoinPool(PLANNERS);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+        SolutionSnapshot[] sequential = new SolutionSnapshot[PLANNERS];
+        double[] sequentialCost = new double[PLANNERS];
+        for (int i = 0; i < PLANNERS; i++)
+        {
+            CentralizedPlanner planner = run(problem, settings, i, null, deadline);
+            sequential[i] = planner.snapshot();
+            sequentialCost[i] = planner.getFinalCost();
+        }
+
+        boolean failed = false;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            List<ForkJoinTask<CentralizedPlanner>> runs = new ArrayList<>(PLANNERS);
+            for (int i = 0; i < PLANNERS; i++)
+            {
+                final int seed = i;
+                runs.add(planners.submit(new Callable<CentralizedPlanner>()
+                {
+                    @Override
+                    public CentralizedPlanner call()
+                    {
+                        return run(problem, settings, seed, seed % 2 == 1 ? pool : null, deadline);
+                    }
+                }));
+            }
+            for (int i = 0; i < PLANNERS; i++)
+            {
+                CentralizedPlanner planner = runs.get(i).join();
+                boolean same = planner.getFinalCost() == sequentialCost[i]
+                        && sameRoutes(planner.snapshot(), sequential[i]);
+                failed |= !same;
+                System.out.printf("round %d planner %d: sequential %.1f, concurrent %.1f%s%n", round, i,
+                        sequentialCost[i], planner.getFinalCost(), same ? "" : " DIFFERENT");
+            }
+        }
+        planners.shutdown();
+        if (failed)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param pool pool to generate the neighbourhood on, null to generate it on the calling thread
+     */
+    private static CentralizedPlanner run(Problem problem, SearchSettings settings, long seed, ForkJoinPool pool,
+                                          long deadline)
+    {
+        CentralizedPlanner planner = new CentralizedPlanner(problem, settings, seed);
+        if (pool != null)
+        {
+            planner.parallelNeighbourhood(pool, 2);
+        }
+        planner.selectInitialSolution(null, deadline);
+        planner.search(deadline, ITERATIONS);
+        return planner;
+    }
+
+    private static boolean sameRoutes(SolutionSnapshot a, SolutionSnapshot b)
+    {
+        for (int vehicle = 0; vehicle < a.vehicles(); vehicle++)
+        {
+            if (!Arrays.equals(a.route(vehicle), b.route(vehicle)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
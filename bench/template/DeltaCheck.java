@@ -0,0 +1,197 @@
+package template;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the incremental evaluation of the search against full evaluation, on synthetic problems (see
+ * SyntheticInstance), with and without candidate lists of the insertion: every neighbour built by the default
+ * operators from a random walk of solutions is applied to a copy of the solution, and
+ * <ul>
+ * <li>the cost of the copy must be the cost of the solution plus Move.delta(), and the cost of every route it
+ * touches its old cost plus its Move.routeDelta();</li>
+ * <li>Objective.valueAfter() must be the full evaluation of the copy, for every objective;</li>
+ * <li>the copy must fit the capacity of its vehicles, and pick every task up before delivering it with the same
+ * vehicle;</li>
+ * <li>Move.undo() must give back the solution, fingerprint included.</li>
+ * </ul>
+ * main() prints the number of neighbours and the largest relative errors of every objective and candidate list
+ * length, and exits with status 1 if any check fails.
+ */
+public class DeltaCheck
+{
+    private static final int CITIES = 50;
+    private static final int TASKS = 100;
+    private static final int VEHICLES = 6;
+    private static final int SEEDS = 5;
+    private static final int STEPS = 700;
+    // lengths of the candidate lists checked, 0 for none
+    private static final int[] CANDIDATE_NEIGHBOURS = {0, 8};
+    // relative error allowed between the incremental and the full evaluation
+    private static final double TOLERANCE = 1e-9;
+
+    public static void main(String[] args)
+    {
+        String[] objectives = {TotalCostObjective.NAME, MakespanObjective.NAME, WeightedObjective.NAME};
+        boolean failed = false;
+        for (int candidateNeighbours : CANDIDATE_NEIGHBOURS)
+        {
+            for (String name : objectives)
+            {
+                failed |= !check(name, candidateNeighbours);
+            }
+        }
+        if (failed)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return true if every check passes for the objective and candidate list length
+     */
+    private static boolean check(String name, int candidateNeighbours)
+    {
+        SearchSettings settings = new SearchSettings();
+        settings.setObjective(name);
+        long neighbours = 0;
+        long failures = 0;
+        double costError = 0;
+        double objectiveError = 0;
+        for (long seed = 1; seed <= SEEDS; seed++)
+        {
+            Problem problem = SyntheticInstance.create(CITIES, TASKS, VEHICLES, seed, candidateNeighbours);
+            CostModel costModel = problem.costModel();
+            Objective objective = Objectives.create(settings, problem);
+            NeighbourOperator[] operators = new NeighbourOperator[settings.getOperators().length];
+            for (int i = 0; i < operators.length; i++)
+            {
+                operators[i] = NeighbourOperators.create(settings.getOperators()[i], problem);
+            }
+            Random random = new Random(seed);
+            Solution solution = new Solution(problem);
+            new NearestVehicleBuilder(problem).build(solution, Long.MAX_VALUE);
+            Solution work = new Solution(problem);
+            Solution check = new Solution(problem);
+            MoveBuilder builder = new MoveBuilder(problem, work);
+            double[] routeCost = new double[VEHICLES];
+            double[] checkCost = new double[VEHICLES];
+            Move move = new Move();
+            Move walk = new Move();
+
+            for (int step = 0; step < STEPS; step++)
+            {
+                for (int vehicle = 0; vehicle < VEHICLES; vehicle++)
+                {
+                    routeCost[vehicle] = costModel.routeCost(solution, vehicle);
+                }
+                double cost = costModel.totalCost(solution);
+                objective.update(routeCost);
+                work.copyFrom(solution);
+                walk.clear();
+                int walkCandidates = 0;
+                for (NeighbourOperator operator : operators)
+                {
+                    int candidates = operator.prepare(solution, random);
+                    for (int candidate = 0; candidate < candidates; candidate++)
+                    {
+                        move.clear();
+                        if (!operator.build(candidate, builder, move))
+                        {
+                            continue;
+                        }
+                        neighbours++;
+                        check.copyFrom(solution);
+                        move.apply(check);
+                        for (int vehicle = 0; vehicle < VEHICLES; vehicle++)
+                        {
+                            checkCost[vehicle] = costModel.routeCost(check, vehicle);
+                        }
+                        if (!feasible(problem, check))
+                        {
+                            failures++;
+                        }
+                        double checkTotal = costModel.totalCost(check);
+                        costError = Math.max(costError, relativeError(cost + move.delta(), checkTotal));
+                        for (int i = 0; i < move.routes(); i++)
+                        {
+                            int vehicle = move.routeVehicle(i);
+                            costError = Math.max(costError,
+                                    relativeError(routeCost[vehicle] + move.routeDelta(i), checkCost[vehicle]));
+                        }
+                        objectiveError = Math.max(objectiveError, relativeError(
+                                objective.valueAfter(routeCost, move), objective.value(checkCost)));
+                        move.undo(check);
+                        if (check.fingerprint() != solution.fingerprint() || !sameRoutes(check, solution))
+                        {
+                            failures++;
+                        }
+                        // the walk goes on with a random neighbour
+                        if (random.nextInt(++walkCandidates) == 0)
+                        {
+                            Move swap = walk;
+                            walk = move;
+                            move = swap;
+                        }
+                    }
+                }
+                if (walk.steps() > 0)
+                {
+                    walk.apply(solution);
+                }
+            }
+        }
+        boolean ok = failures == 0 && costError <= TOLERANCE && objectiveError <= TOLERANCE;
+        System.out.printf("%s, %d candidate neighbours: %d neighbours, cost error %.2e, objective error %.2e, %d "
+                + "failures%s%n", name, candidateNeighbours, neighbours, costError, objectiveError, failures,
+                ok ? "" : " FAILED");
+        return ok;
+    }
+
+    /**
+     * @return true if every route fits the capacity of its vehicle and picks its tasks up before delivering them
+     */
+    private static boolean feasible(Problem problem, Solution solution)
+    {
+        int[] pickupVehicle = new int[problem.taskCount()];
+        Arrays.fill(pickupVehicle, -1);
+        for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+        {
+            if (solution.maxLoadFrom(vehicle, 0) > problem.capacity(vehicle))
+            {
+                return false;
+            }
+            for (int i = 0; i < solution.size(vehicle); i++)
+            {
+                int job = solution.get(vehicle, i);
+                int task = Solution.task(job);
+                if (Solution.action(job) == CentralizedPlanner.PICKUP)
+                {
+                    pickupVehicle[task] = vehicle;
+                } else if (pickupVehicle[task] != vehicle)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double relativeError(double incremental, double full)
+    {
+        return Math.abs(incremental - full) / Math.max(1, Math.abs(full));
+    }
+
+    private static boolean sameRoutes(Solution a, Solution b)
+    {
+        for (int vehicle = 0; vehicle < a.vehicles(); vehicle++)
+        {
+            if (!Arrays.equals(Arrays.copyOf(a.route(vehicle), a.size(vehicle)),
+                    Arrays.copyOf(b.route(vehicle), b.size(vehicle))))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
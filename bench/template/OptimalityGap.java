@@ -0,0 +1,45 @@
+package template;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quality of the stochastic search against the optimum: on small synthetic problems (see SyntheticInstance), the
+ * cost of a planning run with the default settings, like PlannerBenchmark.plan, is compared to the optimal cost
+ * found by BranchAndBound, for several seeds. main() prints the gap of every run and the mean gap of every size.
+ */
+public class OptimalityGap
+{
+    private static final int CITIES = 50;
+    private static final int VEHICLES = 4;
+    private static final int[] TASKS = {4, 6, 8, 10};
+    private static final int SEEDS = 10;
+    private static final int PLAN_ITERATIONS = 1000;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args)
+    {
+        SearchSettings settings = new SearchSettings();
+        for (int tasks : TASKS)
+        {
+            double totalGap = 0;
+            for (long seed = 1; seed <= SEEDS; seed++)
+            {
+                Problem problem = SyntheticInstance.create(CITIES, tasks, VEHICLES, seed);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+                CentralizedPlanner planner = new CentralizedPlanner(problem, settings, seed);
+                planner.selectInitialSolution(null, deadline);
+                planner.search(deadline, PLAN_ITERATIONS);
+
+                BranchAndBound exact = new BranchAndBound(problem, PlannerPool.get());
+                Solution optimum = exact.solve(planner.getFinalCost(), deadline);
+                double optimal = optimum == null ? planner.getFinalCost() : problem.costModel().totalCost(optimum);
+                double gap = 100 * (planner.getFinalCost() - optimal) / optimal;
+                totalGap += gap;
+                System.out.printf("tasks %d seed %d: search %.1f, %s %.1f, gap %.2f%%, %d nodes%n", tasks, seed,
+                        planner.getFinalCost(), exact.isOptimal() ? "optimum" : "best found", optimal, gap,
+                        exact.getNodes());
+            }
+            System.out.printf("tasks %d: mean gap %.2f%%%n", tasks, totalGap / SEEDS);
+        }
+    }
+}
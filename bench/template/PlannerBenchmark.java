@@ -0,0 +1,135 @@
+package template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the planner hot paths on synthetic problems (see SyntheticInstance):
+ * <ul>
+ * <li>totalCost: cost of a whole solution, what computeCost used to do</li>
+ * <li>copySolution: copy of a solution, what deepCopy used to do</li>
+ * <li>chooseNeighbours: generation of the neighbourhood of one iteration</li>
+ * <li>iteration: chooseNeighbours then localChoice, the choice among the generated neighbourhood; localChoice is
+ * only measured as part of it, since it consumes the neighbourhood and regenerating one in a per-invocation setup
+ * would mostly measure the timestamps of JMH at this scale</li>
+ * <li>plan: a whole planning run with the default settings, initial solution then PLAN_ITERATIONS iterations
+ * within PLAN_TIMEOUT_SECONDS, without building the logist plans</li>
+ * </ul>
+ * The other benchmarks start from the nearest-vehicle solution the planner is created with. The benchmarks live in
+ * package template to reach the package-private planner classes. bench/pom.xml compiles them with the sources in
+ * src/ against the logist jar and JMH, into target/benchmarks.jar:
+ * <pre>
+ * mvn -f bench/pom.xml package -Dlogist.jar=path/to/logist.jar
+ * java -cp bench/target/benchmarks.jar:path/to/logist.jar org.openjdk.jmh.Main PlannerBenchmark -prof gc
+ * </pre>
+ * -prof gc reports the allocation rate of every benchmark, a benchmark can be picked with a regular expression such
+ * as PlannerBenchmark.iteration. main() runs them all with the GC profiler as well, and the checks of bench/template
+ * run from the same class path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlannerBenchmark
+{
+    private static final int CITIES = 50;
+    private static final long SEED = 123456;
+    private static final int PLAN_ITERATIONS = 1000;
+    private static final long PLAN_TIMEOUT_SECONDS = 60;
+
+    @Param({"30", "100", "500", "2000"})
+    public int tasks;
+
+    @Param({"4", "16", "64"})
+    public int vehicles;
+
+    // 0 inserts at every position, otherwise next to the candidates nearest cities only
+    @Param({"0", "8"})
+    public int candidates;
+
+    private Problem problem;
+    private SearchSettings settings;
+    private CentralizedPlanner planner;
+    private Solution solution;
+    private Solution copy;
+
+    @Setup(Level.Trial)
+    public void createProblem()
+    {
+        problem = SyntheticInstance.create(CITIES, tasks, vehicles, SEED, candidates);
+        settings = new SearchSettings();
+        planner = new CentralizedPlanner(problem, settings, SEED);
+        solution = new Solution(problem);
+        new NearestVehicleBuilder(problem).build(solution, Long.MAX_VALUE);
+        copy = new Solution(problem);
+    }
+
+    @Benchmark
+    public double totalCost()
+    {
+        return problem.costModel().totalCost(solution);
+    }
+
+    @Benchmark
+    public Solution copySolution()
+    {
+        copy.copyFrom(solution);
+        return copy;
+    }
+
+    @Benchmark
+    public CentralizedPlanner chooseNeighbours()
+    {
+        planner.chooseNeighbours();
+        return planner;
+    }
+
+    @Benchmark
+    public CentralizedPlanner iteration()
+    {
+        planner.chooseNeighbours();
+        planner.localChoice();
+        return planner;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, batchSize = 1)
+    public double plan()
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PLAN_TIMEOUT_SECONDS);
+        CentralizedPlanner run = new CentralizedPlanner(problem, settings, SEED);
+        run.selectInitialSolution(null, deadline);
+        run.search(deadline, PLAN_ITERATIONS);
+        return run.getFinalCost();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(PlannerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,83 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Random planning problems for the benchmarks, built without logist: cities are points in a square whose distances
+ * are Euclidean, vehicles start from random cities and tasks go between two different random cities. The same
+ * sizes and seed always give the same problem.
+ */
+final class SyntheticInstance
+{
+    // side of the square the cities lie in, in kilometres
+    private static final double SIDE = 500;
+    private static final int CAPACITY = 30;
+    private static final int MAX_WEIGHT = 15;
+    private static final double COST_PER_KM = 5;
+    private static final double SPEED = 90;
+
+    private SyntheticInstance()
+    {
+    }
+
+    /**
+     * @param cities   number of cities
+     * @param tasks    number of tasks
+     * @param vehicles number of vehicles
+     * @param seed     seed of the random generator
+     */
+    static Problem create(int cities, int tasks, int vehicles, long seed)
+    {
+        return create(cities, tasks, vehicles, seed, 0);
+    }
+
+    /**
+     * @param candidateNeighbours number of nearest cities insertion is restricted to, 0 for none (see Problem)
+     */
+    static Problem create(int cities, int tasks, int vehicles, long seed, int candidateNeighbours)
+    {
+        Random random = new Random(seed);
+        double[] x = new double[cities];
+        double[] y = new double[cities];
+        for (int city = 0; city < cities; city++)
+        {
+            x[city] = random.nextDouble() * SIDE;
+            y[city] = random.nextDouble() * SIDE;
+        }
+        double[][] distance = new double[cities][cities];
+        for (int from = 0; from < cities; from++)
+        {
+            for (int to = 0; to < cities; to++)
+            {
+                distance[from][to] = Math.hypot(x[from] - x[to], y[from] - y[to]);
+            }
+        }
+
+        int[] capacity = new int[vehicles];
+        int[] home = new int[vehicles];
+        double[] costPerKm = new double[vehicles];
+        double[] speed = new double[vehicles];
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            capacity[vehicle] = CAPACITY;
+            home[vehicle] = random.nextInt(cities);
+            costPerKm[vehicle] = COST_PER_KM;
+            speed[vehicle] = SPEED;
+        }
+
+        int[] pickupCity = new int[tasks];
+        int[] deliveryCity = new int[tasks];
+        int[] weight = new int[tasks];
+        for (int task = 0; task < tasks; task++)
+        {
+            pickupCity[task] = random.nextInt(cities);
+            do
+            {
+                deliveryCity[task] = random.nextInt(cities);
+            } while (deliveryCity[task] == pickupCity[task]);
+            weight[task] = 1 + random.nextInt(MAX_WEIGHT);
+        }
+        return new Problem(capacity, home, costPerKm, speed, pickupCity, deliveryCity, weight,
+                new DistanceCache(distance), candidateNeighbours);
+    }
+}
@@ -0,0 +1,29 @@
+package template;
+
+/**
+ * Creates the acceptance strategy named in the search settings.
+ */
+final class AcceptanceStrategies
+{
+    private AcceptanceStrategies()
+    {
+    }
+
+    static AcceptanceStrategy create(SearchSettings settings, Problem problem)
+    {
+        switch (settings.getAcceptance())
+        {
+            case FixedProbabilityAcceptance.NAME:
+                return new FixedProbabilityAcceptance(settings.getProbability());
+            case SimulatedAnnealingAcceptance.NAME:
+                return new SimulatedAnnealingAcceptance(settings.getInitialTemperature(), settings.getCooling(),
+                        settings.getCoolingRate());
+            case TabuAcceptance.NAME:
+                return new TabuAcceptance(problem.taskCount(), settings.getTabuTenure());
+            case LateAcceptance.NAME:
+                return new LateAcceptance(settings.getLateAcceptanceLength());
+            default:
+                throw new IllegalArgumentException("Unknown acceptance strategy: " + settings.getAcceptance());
+        }
+    }
+}
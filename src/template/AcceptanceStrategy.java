@@ -0,0 +1,40 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Decides which neighbours the local search may move to. At every iteration the workers drop the candidates that
+ * are not admissible, localChoice picks one of the cheapest remaining ones and asks accept() whether to move to it,
+ * then update() is told what happened.
+ */
+interface AcceptanceStrategy
+{
+    /**
+     * Called by the workers, possibly on several threads at once: it must not modify the strategy.
+     *
+     * @param move          candidate move
+     * @param candidateCost cost of the solution the move leads to
+     * @param bestCost      cost of the best solution found so far
+     *
+     * @return false if the candidate may not be chosen
+     */
+    boolean admissible(Move move, double candidateCost, double bestCost);
+
+    /**
+     * @param currentCost   cost of the current solution
+     * @param candidateCost cost of the chosen neighbour
+     * @param random        random generator of the planner
+     *
+     * @return true to move to the chosen neighbour
+     */
+    boolean accept(double currentCost, double candidateCost, Random random);
+
+    /**
+     * End of an iteration.
+     *
+     * @param move        the chosen neighbour, null if there was none or if it was not a Move (ruin and recreate)
+     * @param accepted    true if the search moved to it
+     * @param currentCost cost of the current solution, once the move is applied or not
+     */
+    void update(Move move, boolean accepted, double currentCost);
+}
@@ -0,0 +1,48 @@
+package template;
+
+/**
+ * The original initial solution: all the tasks one after the other on the biggest vehicle, task 0 last.
+ */
+final class BiggestVehicleBuilder implements InitialSolutionBuilder
+{
+    static final String NAME = "biggest-vehicle";
+
+    private final Problem problem;
+
+    BiggestVehicleBuilder(Problem problem)
+    {
+        this.problem = problem;
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public boolean build(Solution solution, long deadline)
+    {
+        int vehicle = 0;
+        for (int v = 1; v < problem.vehicleCount(); v++)
+        {
+            if (problem.capacity(v) > problem.capacity(vehicle))
+            {
+                vehicle = v;
+            }
+        }
+
+        solution.clear();
+        for (int task = problem.taskCount() - 1; task >= 0; task--)
+        {
+            // the vehicle is empty between two tasks, so a task as heavy as its capacity fits
+            if (problem.weight(task) > problem.capacity(vehicle))
+            {
+                return false;
+            }
+            solution.add(vehicle, Solution.job(task, CentralizedPlanner.PICKUP));
+            solution.add(vehicle, Solution.job(task, CentralizedPlanner.DELIVERY));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,558 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact search of the cheapest solution of a small problem by depth-first branch-and-bound. The routes are built
+ * one vehicle after the other, job after job: a node appends the pickup of a task that fits in the vehicle, the
+ * delivery of a task it carries, or ends the route of the vehicle once it carries nothing. A node is pruned when
+ * <ul>
+ * <li>its cost plus a lower bound of the cost of the jobs left exceeds the cheapest solution found so far, the bound
+ * being a minimum spanning tree of the cities left to visit;</li>
+ * <li>the same vehicle already reached the same city with the same tasks done and carried at a lower or equal cost
+ * (dynamic programming over these states, in a table that forgets on collisions).</li>
+ * </ul>
+ * The top of the tree is split into a few subtrees per thread, searched in parallel, which share the cost of the
+ * cheapest solution lock-free; the tables are kept from one subtree to the next. The optimal cost does not
+ * depend on the number of threads, but which one of several equally cheap solutions is returned may. It minimises
+ * the total cost, the default objective.
+ */
+final class BranchAndBound
+{
+    // the state of the tasks of a node, 3^MAX_TASKS values, fits in a long
+    static final int MAX_TASKS = 39;
+
+    // decision that ends the route of the current vehicle
+    private static final int CLOSE = -1;
+    // subtrees per thread of the pool, so that the threads finish at about the same time
+    private static final int SUBTREES_PER_THREAD = 8;
+    // bounds of the states remembered by a searcher, powers of two
+    private static final int MIN_STATES = 1 << 10;
+    private static final int MAX_STATES = 1 << 18;
+    // the deadline is read once per NODES_PER_CLOCK_CHECK nodes
+    private static final int NODES_PER_CLOCK_CHECK = 4096;
+    // rounding errors must not prune a solution as cheap as the cheapest one found
+    private static final double EPSILON = 1e-9;
+
+    private final Problem problem;
+    private final ForkJoinPool pool;
+    private final double[][] distance;
+    private final int tasks;
+    private final int vehicles;
+    private final int cities;
+    // 3^task, the weight of the state of a task in the code of a node
+    private final long[] power;
+    // cheapest cost per kilometre of the vehicles from the index on
+    private final double[] cheapest;
+    // distance of a city to the closest home of the vehicles after the index, MAX_VALUE for the last vehicle
+    private final double[][] laterHome;
+    // states remembered by a searcher, a power of two no larger than needed for the states of the problem
+    private final int states;
+    private final AtomicLong bestCost = new AtomicLong();
+    private final ConcurrentLinkedQueue<Searcher> searchers = new ConcurrentLinkedQueue<>();
+    private volatile boolean timedOut;
+    private long deadline;
+    private long nodes;
+
+    /**
+     * @param problem problem to solve, of at most MAX_TASKS tasks
+     * @param pool    pool the subtrees are searched on, null to search them on the calling thread
+     */
+    BranchAndBound(Problem problem, ForkJoinPool pool)
+    {
+        if (problem.taskCount() > MAX_TASKS)
+        {
+            throw new IllegalArgumentException("Too many tasks for the exact search: " + problem.taskCount());
+        }
+        this.problem = problem;
+        this.pool = pool;
+        this.distance = problem.distances().distances();
+        this.tasks = problem.taskCount();
+        this.vehicles = problem.vehicleCount();
+        this.cities = distance.length;
+        this.power = new long[tasks];
+        for (int task = 0; task < tasks; task++)
+        {
+            power[task] = task == 0 ? 1 : 3 * power[task - 1];
+        }
+        CostModel costModel = problem.costModel();
+        this.cheapest = new double[vehicles + 1];
+        this.laterHome = new double[vehicles][cities];
+        cheapest[vehicles] = Double.MAX_VALUE;
+        for (int vehicle = vehicles - 1; vehicle >= 0; vehicle--)
+        {
+            cheapest[vehicle] = Math.min(cheapest[vehicle + 1], costModel.costPerKm(vehicle));
+            for (int city = 0; city < cities; city++)
+            {
+                laterHome[vehicle][city] = vehicle == vehicles - 1 ? Double.MAX_VALUE
+                        : Math.min(laterHome[vehicle + 1][city], distance[costModel.home(vehicle + 1)][city]);
+            }
+        }
+        // a state is a vehicle, a city and the status of every task
+        double reachable = (double) vehicles * cities * Math.pow(3, tasks);
+        int size = MIN_STATES;
+        while (size < MAX_STATES && size < reachable)
+        {
+            size <<= 1;
+        }
+        this.states = size;
+    }
+
+    /**
+     * Search the cheapest solution.
+     *
+     * @param upperBound cost of a known solution, only cheaper or equally cheap solutions are searched
+     * @param deadline   System.nanoTime() value at which the search has to stop
+     *
+     * @return the cheapest solution found, optimal if isOptimal(), null if none costs at most upperBound
+     */
+    Solution solve(double upperBound, long deadline)
+    {
+        this.deadline = deadline;
+        timedOut = false;
+        nodes = 0;
+        bestCost.set(Double.doubleToLongBits(upperBound));
+        if (vehicles == 0)
+        {
+            return null;
+        }
+
+        for (Searcher searcher : searchers)
+        {
+            searcher.clearStates();
+        }
+        final List<int[]> subtrees = split(pool == null ? 1 : SUBTREES_PER_THREAD * pool.getParallelism());
+        final double[] resultCost = new double[subtrees.size()];
+        final Solution[] results = new Solution[subtrees.size()];
+        final long[] resultNodes = new long[subtrees.size()];
+        List<Callable<Void>> runs = new ArrayList<>(subtrees.size());
+        for (int i = 0; i < subtrees.size(); i++)
+        {
+            final int subtree = i;
+            runs.add(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    search(subtree, subtrees.get(subtree), resultCost, results, resultNodes);
+                    return null;
+                }
+            });
+        }
+        if (pool != null)
+        {
+            pool.invokeAll(runs);
+        } else
+        {
+            for (Callable<Void> run : runs)
+            {
+                try
+                {
+                    run.call();
+                } catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        int best = -1;
+        for (int subtree = 0; subtree < subtrees.size(); subtree++)
+        {
+            nodes += resultNodes[subtree];
+            if (results[subtree] != null && (best == -1 || resultCost[subtree] < resultCost[best]))
+            {
+                best = subtree;
+            }
+        }
+        return best == -1 ? null : results[best];
+    }
+
+    /**
+     * @return true if the last solve() went through the whole tree, its solution is then optimal
+     */
+    boolean isOptimal()
+    {
+        return !timedOut;
+    }
+
+    /**
+     * @return number of nodes of the last solve()
+     */
+    long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Split the top of the tree into count subtrees or a few more, always expanding the shallowest one, in
+     * depth-first order.
+     *
+     * @return the decisions leading to the root of every subtree
+     */
+    private List<int[]> split(int count)
+    {
+        Searcher searcher = searcher();
+        List<int[]> subtrees = new ArrayList<>();
+        List<int[]> expanded = new ArrayList<>();
+        subtrees.add(new int[0]);
+        while (subtrees.size() < count)
+        {
+            // the first shallowest subtree that has children
+            int next = -1;
+            int childCount = 0;
+            for (int i = 0; i < subtrees.size(); i++)
+            {
+                if (next == -1 || subtrees.get(i).length < subtrees.get(next).length)
+                {
+                    searcher.reset(subtrees.get(i));
+                    int children = searcher.children(0);
+                    if (children > 0)
+                    {
+                        next = i;
+                        childCount = children;
+                    }
+                }
+            }
+            if (next == -1)
+            {
+                break;
+            }
+            searcher.reset(subtrees.get(next));
+            searcher.children(0);
+            expanded.clear();
+            for (int i = 0; i < childCount; i++)
+            {
+                int[] path = Arrays.copyOf(subtrees.get(next), subtrees.get(next).length + 1);
+                path[path.length - 1] = searcher.childJob[0][i];
+                expanded.add(path);
+            }
+            subtrees.remove(next);
+            subtrees.addAll(next, expanded);
+        }
+        searchers.offer(searcher);
+        return subtrees;
+    }
+
+    /**
+     * Search a subtree, and keep its cheapest solution in results.
+     */
+    private void search(int subtree, int[] path, double[] resultCost, Solution[] results, long[] resultNodes)
+    {
+        Searcher searcher = searcher();
+        searcher.reset(path);
+        searcher.search(0);
+        resultCost[subtree] = searcher.bestCost;
+        resultNodes[subtree] = searcher.nodes;
+        if (searcher.bestCost != Double.MAX_VALUE)
+        {
+            results[subtree] = new Solution(problem);
+            results[subtree].copyFrom(searcher.best);
+        }
+        searchers.offer(searcher);
+    }
+
+    /**
+     * Lower the best cost shared by the searchers to cost if it is cheaper, without locking.
+     */
+    private void lowerBestCost(double cost)
+    {
+        long current;
+        do
+        {
+            current = bestCost.get();
+            if (Double.longBitsToDouble(current) <= cost)
+            {
+                return;
+            }
+        } while (!bestCost.compareAndSet(current, Double.doubleToLongBits(cost)));
+    }
+
+    /**
+     * @return a searcher of the free list, or a new one; it goes back to the list once used
+     */
+    private Searcher searcher()
+    {
+        Searcher searcher = searchers.poll();
+        return searcher == null ? new Searcher() : searcher;
+    }
+
+    /**
+     * The state of one depth-first search, not thread-safe.
+     */
+    private final class Searcher
+    {
+        private final Solution current = new Solution(problem);
+        private final Solution best = new Solution(problem);
+        // 0 before the pickup of a task, 1 while it is carried, 2 once delivered
+        private final int[] status = new int[tasks];
+        // children of the node at every depth from the subtree root, and their cost
+        private final int[][] childJob;
+        private final double[][] childCost;
+        // cities of the jobs left and their distance to the spanning tree, see remainingBound()
+        private final int[] pending = new int[2 * tasks];
+        private final double[] toTree = new double[2 * tasks];
+        // dynamic programming table: code and place of a state, and the cheapest cost it was reached at
+        private final long[] stateCode = new long[states];
+        private final int[] statePlace = new int[states];
+        private final double[] stateCost = new double[states];
+        private int vehicle;
+        private int city;
+        private int load;
+        private int carried;
+        private int left;
+        // sum of status[task] * 3^task
+        private long code;
+        private double cost;
+        private double bestCost;
+        private long nodes;
+
+        Searcher()
+        {
+            int depth = 2 * tasks + vehicles;
+            childJob = new int[depth + 1][2 * tasks + 1];
+            childCost = new double[depth + 1][2 * tasks + 1];
+            clearStates();
+        }
+
+        void clearStates()
+        {
+            Arrays.fill(statePlace, -1);
+        }
+
+        /**
+         * Go to the root of a subtree.
+         */
+        void reset(int[] path)
+        {
+            current.clear();
+            Arrays.fill(status, 0);
+            vehicle = 0;
+            city = problem.costModel().home(0);
+            load = 0;
+            carried = 0;
+            left = tasks;
+            code = 0;
+            cost = 0;
+            bestCost = Double.MAX_VALUE;
+            nodes = 0;
+            for (int job : path)
+            {
+                apply(job);
+            }
+        }
+
+        void search(int depth)
+        {
+            if (++nodes % NODES_PER_CLOCK_CHECK == 0 && System.nanoTime() - deadline >= 0)
+            {
+                timedOut = true;
+            }
+            if (timedOut)
+            {
+                return;
+            }
+            if (left == 0)
+            {
+                if (cost < bestCost)
+                {
+                    bestCost = cost;
+                    best.copyFrom(current);
+                    lowerBestCost(cost);
+                }
+                return;
+            }
+            if (cost + remainingBound() - Double.longBitsToDouble(BranchAndBound.this.bestCost.get()) > EPSILON
+                    || !visit())
+            {
+                return;
+            }
+            int count = children(depth);
+            for (int i = 0; i < count && !timedOut; i++)
+            {
+                int job = childJob[depth][i];
+                int vehicleBefore = vehicle;
+                int cityBefore = city;
+                double costBefore = cost;
+                apply(job);
+                search(depth + 1);
+                undo(job, vehicleBefore, cityBefore, costBefore);
+            }
+        }
+
+        /**
+         * The rest of the routes connects the current city and the homes of the later vehicles to the city of every
+         * job left, so its length is at least that of a minimum spanning tree of these cities, with the current
+         * city and the homes merged into one node (see LowerBound.totalCost). The cheapest cost per kilometre
+         * turns it into a cost.
+         */
+        private double remainingBound()
+        {
+            int count = 0;
+            for (int task = 0; task < tasks; task++)
+            {
+                if (status[task] == 0)
+                {
+                    pending[count++] = problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP));
+                }
+                if (status[task] < 2)
+                {
+                    pending[count++] = problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY));
+                }
+            }
+            for (int i = 0; i < count; i++)
+            {
+                toTree[i] = Math.min(distance[city][pending[i]], laterHome[vehicle][pending[i]]);
+            }
+            // Prim's algorithm, the cities in the tree being moved to the end of pending
+            double length = 0;
+            while (count > 0)
+            {
+                int next = 0;
+                for (int i = 1; i < count; i++)
+                {
+                    if (toTree[i] < toTree[next])
+                    {
+                        next = i;
+                    }
+                }
+                length += toTree[next];
+                int added = pending[next];
+                count--;
+                pending[next] = pending[count];
+                toTree[next] = toTree[count];
+                for (int i = 0; i < count; i++)
+                {
+                    toTree[i] = Math.min(toTree[i], distance[added][pending[i]]);
+                }
+            }
+            return length * cheapest[vehicle];
+        }
+
+        /**
+         * Look the state of the node up in the table, and record it.
+         *
+         * @return false if the state was already reached at a lower or equal cost
+         */
+        private boolean visit()
+        {
+            int place = vehicle * cities + city;
+            long hash = (code ^ (long) place * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+            int slot = (int) (hash >>> 40) & (states - 1);
+            if (statePlace[slot] == place && stateCode[slot] == code && stateCost[slot] <= cost)
+            {
+                return false;
+            }
+            statePlace[slot] = place;
+            stateCode[slot] = code;
+            stateCost[slot] = cost;
+            return true;
+        }
+
+        /**
+         * Fill childJob[depth] with the children of the node, the closest job first and the end of the route last.
+         *
+         * @return number of children
+         */
+        int children(int depth)
+        {
+            int[] jobs = childJob[depth];
+            double[] costs = childCost[depth];
+            int count = 0;
+            if (left == 0)
+            {
+                return 0;
+            }
+            double costPerKm = problem.costModel().costPerKm(vehicle);
+            int capacity = problem.capacity(vehicle);
+            for (int task = 0; task < tasks; task++)
+            {
+                int job;
+                if (status[task] == 1)
+                {
+                    job = Solution.job(task, CentralizedPlanner.DELIVERY);
+                } else if (status[task] == 0 && load + problem.weight(task) <= capacity)
+                {
+                    job = Solution.job(task, CentralizedPlanner.PICKUP);
+                } else
+                {
+                    continue;
+                }
+                double jobCost = distance[city][problem.jobCity(job)] * costPerKm;
+                // insertion sort, stable so that ties keep the task order
+                int i = count++;
+                while (i > 0 && costs[i - 1] > jobCost)
+                {
+                    jobs[i] = jobs[i - 1];
+                    costs[i] = costs[i - 1];
+                    i--;
+                }
+                jobs[i] = job;
+                costs[i] = jobCost;
+            }
+            if (carried == 0 && vehicle < vehicles - 1)
+            {
+                jobs[count] = CLOSE;
+                costs[count] = 0;
+                count++;
+            }
+            return count;
+        }
+
+        private void apply(int job)
+        {
+            if (job == CLOSE)
+            {
+                vehicle++;
+                city = problem.costModel().home(vehicle);
+                return;
+            }
+            int task = Solution.task(job);
+            int to = problem.jobCity(job);
+            cost += distance[city][to] * problem.costModel().costPerKm(vehicle);
+            city = to;
+            current.add(vehicle, job);
+            status[task]++;
+            code += power[task];
+            load += problem.jobLoad(job);
+            if (Solution.action(job) == CentralizedPlanner.PICKUP)
+            {
+                carried++;
+            } else
+            {
+                carried--;
+                left--;
+            }
+        }
+
+        private void undo(int job, int vehicleBefore, int cityBefore, double costBefore)
+        {
+            vehicle = vehicleBefore;
+            city = cityBefore;
+            cost = costBefore;
+            if (job == CLOSE)
+            {
+                return;
+            }
+            int task = Solution.task(job);
+            current.removeAt(vehicle, current.size(vehicle) - 1);
+            status[task]--;
+            code -= power[task];
+            load -= problem.jobLoad(job);
+            if (Solution.action(job) == CentralizedPlanner.PICKUP)
+            {
+                carried--;
+            } else
+            {
+                carried++;
+                left++;
+            }
+        }
+    }
+}
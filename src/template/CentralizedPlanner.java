@@ -7,591 +7,997 @@ import logist.task.TaskSet;
 import logist.topology.Topology.City;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Centralized_Agent Created by samsara on 06/11/2015.
+ * <p>
+ * Thread safety: all the state of a planner is in its instance, there is no static state, so any number of planners
+ * can run at the same time. A planner itself is not thread-safe: it is used by one thread at a time, which may hand
+ * parts of an iteration to a pool (see parallelNeighbourhood) and waits for them. What a planner shares with others
+ * is immutable once built: the DistanceCache, and the Problem and everything reachable from it.
  */
 public class CentralizedPlanner
 {
     public static final int PICKUP = 0;
     public static final int DELIVERY = 1;
-    public static final double PROBABILITY = 0.8;
-
-    private static Task[] tasks;
-    private static List<Vehicle> vehicles;
-
-    private ArrayList<LinkedList<Job>> jobList;
-    // V0 Job(Task, Action), Job(Task, Action)
-    // V1 Job(Task, Action), ...
+    // the clock is read roughly once per CLOCK_CHECK_NANOS by search(), not at every iteration
+    private static final long CLOCK_CHECK_NANOS = 1000000L;
+
+    private final Problem problem;
+    private final Random random;
+    private final CostModel costModel;
+
+    // builders of the initial solution and the share of the search time they may use
+    private final InitialSolutionBuilder[] builders;
+    private final double initialBudget;
+
+    // ruin and recreate steps, one every lnsInterval iterations; null when they are not used
+    private final LargeNeighbourhoodSearch lns;
+    private final int lnsInterval;
+    private long steps;
+
+    // convergence: the search restarts from a perturbation of the current solution after stagnationWindow
+    // iterations without improvement, and stops after maxRestarts such restarts in a row or once the gap to the
+    // lower bound is small enough
+    private final double lowerBound;
+    private final double stopGap;
+    private final int stagnationWindow;
+    private final int maxRestarts;
+    // ruin and recreate of the perturbations, null when the search never restarts
+    private final LargeNeighbourhoodSearch perturbation;
+    private int sinceImprovement;
+    private int restarts;
+    private boolean converged;
+
+    private final Solution jobList;
+    // V0 pickup 3, delivery 3, pickup 0, ...
+    // V1 ...
     // V2 ...
+    // what the search minimises; the costs of the search are values of the objective, not always money
+    private final Objective objective;
+    // cost of every route of jobList and the objective value of jobList, updated when a move is applied
+    private final double[] vehicleCost;
+    private double currentCost;
+    // cost of every route of a solution being evaluated
+    private final double[] routeCost;
+    // incremented whenever jobList changes, so workers know when their copy is stale
+    private int version;
+
+    private final NeighbourOperator[] operators;
+    private final OperatorStatistics statistics;
+    private final AcceptanceStrategy acceptance;
+    // neighbours of jobList, kept as moves and reused between iterations; only neighbourCount are valid
+    private final Move[] neighbours;
+    private int neighbourCount;
+    // operator and candidate index of every neighbour
+    private final int[] neighbourOperator;
+    private final int[] neighbourCandidate;
+    // fingerprint of the solution every neighbour leads to, only computed for the cheapest ones
+    private final long[] neighbourFingerprint;
+    // indices in neighbours of the cheapest distinct candidates found by localChoice
+    private final int[] bestSolutions;
+    // solutions already visited, which are not evaluated again; null when they are not remembered
+    private final VisitedSolutions visited;
+
+    // the neighbourhood is split between the workers, a single worker generates it on jobList itself
+    private Worker[] workers;
+    private ForkJoinPool pool;
+    private RecursiveAction[] chunks;
+    private RecursiveAction root;
+
+    private final Solution bestList;
+    private double finalCost;
+    // best cost over all the planners of a parallel search, null when running alone
+    private AtomicLong sharedBestCost;
+    private int iterations;
 
-    private Set<ArrayList<LinkedList<Job>>> neighbours;
+    // told about every iteration, which is only timed when there are some
+    private SearchListener[] listeners = new SearchListener[0];
+    // offered the best solution when search() reads the clock, null for no checkpoints
+    private Checkpoint checkpoint;
+    private long generateNanos;
 
-    private ArrayList<LinkedList<Job>> bestList;
-    private double finalCost;
+    /**
+     * Creator Function, with the default search settings.
+     *
+     * @param vehicles  list of vehicles to save.
+     * @param tasks     list of tasks to be saved in an array.
+     * @param distances distances of the topology the tasks live in
+     * @param seed      seed of the random choices of the search
+     */
+    public CentralizedPlanner(List<Vehicle> vehicles, TaskSet tasks, DistanceCache distances, long seed)
+    {
+        this(vehicles, tasks, distances, new SearchSettings(), seed);
+    }
 
     /**
      * Creator Function
      *
-     * @param vehicles list of vehicles to save. (static value)
-     * @param tasks    list of tasks to be saved in an array. (static value)
+     * @param vehicles  list of vehicles to save.
+     * @param tasks     list of tasks to be saved in an array.
+     * @param distances distances of the topology the tasks live in
+     * @param settings  settings of the search: neighbourhood operators and acceptance strategy
+     * @param seed      seed of the random choices of the search
      */
-    public CentralizedPlanner(List<Vehicle> vehicles, TaskSet tasks)
+    public CentralizedPlanner(List<Vehicle> vehicles, TaskSet tasks, DistanceCache distances,
+                              SearchSettings settings, long seed)
     {
-        this.jobList = new ArrayList<>(vehicles.size());
-        CentralizedPlanner.tasks = getArray(tasks);
-        CentralizedPlanner.vehicles = vehicles;
-        this.neighbours = new HashSet<>();
-
-        selectInitialSolution();
+        this(new Problem(vehicles, tasks, distances, settings.getCandidateNeighbours()), settings, seed);
+    }
 
-        this.bestList = new ArrayList<>();
-        this.finalCost = Double.MAX_VALUE;
+    /**
+     * Planner of a problem given directly, which may not come from logist (see Problem).
+     */
+    CentralizedPlanner(Problem problem, SearchSettings settings, long seed)
+    {
+        this.problem = problem;
+        this.costModel = problem.costModel();
+        this.random = new Random(seed);
+
+        this.jobList = new Solution(problem);
+        this.objective = Objectives.create(settings, problem);
+        this.vehicleCost = new double[problem.vehicleCount()];
+        this.routeCost = new double[problem.vehicleCount()];
+
+        String[] names = settings.getOperators();
+        this.operators = new NeighbourOperator[names.length];
+        int maxNeighbours = 0;
+        for (int i = 0; i < names.length; i++)
+        {
+            operators[i] = NeighbourOperators.create(names[i], problem);
+            maxNeighbours += operators[i].maxCandidates();
+        }
+        this.statistics = new OperatorStatistics(names);
+        this.acceptance = AcceptanceStrategies.create(settings, problem);
+        this.neighbours = new Move[maxNeighbours];
+        for (int i = 0; i < neighbours.length; i++)
+        {
+            neighbours[i] = new Move();
+        }
+        this.neighbourOperator = new int[maxNeighbours];
+        this.neighbourCandidate = new int[maxNeighbours];
+        this.neighbourFingerprint = new long[maxNeighbours];
+        this.bestSolutions = new int[maxNeighbours];
+        this.visited = settings.getVisitedSolutions() > 0 ? new VisitedSolutions(settings.getVisitedSolutions()) : null;
+        this.workers = new Worker[]{new Worker(jobList)};
+
+        String[] builderNames = settings.getInitialSolutions();
+        this.builders = new InitialSolutionBuilder[builderNames.length];
+        for (int i = 0; i < builderNames.length; i++)
+        {
+            builders[i] = InitialSolutionBuilders.create(builderNames[i], problem);
+        }
+        this.initialBudget = settings.getInitialBudget();
+        this.lnsInterval = settings.getLnsInterval();
+        this.lns = lnsInterval > 0 ? new LargeNeighbourhoodSearch(problem, settings.getLnsRemoval()) : null;
+        this.lowerBound = objective.lowerBound();
+        this.stopGap = settings.getStopGap();
+        this.stagnationWindow = settings.getStagnationWindow();
+        this.maxRestarts = settings.getRestarts();
+        if (stagnationWindow > 0 && maxRestarts > 0)
+        {
+            this.perturbation = lns != null ? lns : new LargeNeighbourhoodSearch(problem, settings.getLnsRemoval());
+        } else
+        {
+            this.perturbation = null;
+        }
 
+        this.bestList = new Solution(problem);
+        // a cheap start, selectInitialSolution(pool, deadline) builds a better one
+        selectInitialSolution(new NearestVehicleBuilder(problem));
     }
 
     /**
-     * Remove both pickup and delivery of a task from jobList
+     * Make jobList the starting point of the search: cache its costs and make it the best-so-far solution, so that
+     * getPlan() is always valid.
      *
-     * @param vehicle vehicle number
-     * @param task    task to be removed
+     * @param deadline System.nanoTime() value at which compiling the routes stops
      */
-    private static void removeJob(ArrayList<LinkedList<Job>> jobList, int vehicle, int task)
+    private void startFrom(long deadline)
     {
-        Iterator<Job> iterator = jobList.get(vehicle).listIterator();
-        while (iterator.hasNext())
+        // a free improvement of every starting solution, the initial ones especially have long detours
+        RouteCompiler.compile(problem, jobList, deadline);
+        recomputeCosts();
+        bestList.copyFrom(jobList);
+        finalCost = currentCost;
+        publishBestCost();
+        sinceImprovement = 0;
+        restarts = 0;
+        converged = closeToBound(finalCost);
+        if (visited != null)
         {
-            Job j = iterator.next();
-            if (j.getT() == task)
-            {
-                iterator.remove(); // Remove pickup and delivery
-            }
+            visited.clear();
+            visited.add(jobList.fingerprint());
         }
     }
 
-    // More Useful for changing order
-    private static void removeJob(LinkedList<Job> jobList, int task)
+    /**
+     * Build the initial solution with every configured builder, in parallel when a pool is given, and start from
+     * the cheapest one. The builders may use the configured share of the time left until deadline; when none of
+     * them succeeds, the nearest-vehicle greedy is used. If there exist some tasks that do not fit any vehicle, then
+     * the problem is unsolvable.
+     *
+     * @param pool     pool to run the builders on, null to run them on the calling thread
+     * @param deadline System.nanoTime() value at which the search has to stop
+     */
+    public void selectInitialSolution(ForkJoinPool pool, long deadline)
     {
-        Iterator<Job> iterator = jobList.listIterator();
-        while (iterator.hasNext())
+        long now = System.nanoTime();
+        final long builderDeadline = now + (long) ((deadline - now) * initialBudget);
+        final Solution[] solutions = new Solution[builders.length];
+        final boolean[] built = new boolean[builders.length];
+        if (pool != null && builders.length > 1)
         {
-            Job j = iterator.next();
-            if (j.getT() == task)
+            List<Callable<Void>> runs = new ArrayList<>(builders.length);
+            for (int i = 0; i < builders.length; i++)
             {
-                iterator.remove(); // Remove pickup and delivery
+                final int builder = i;
+                runs.add(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        solutions[builder] = new Solution(problem);
+                        built[builder] = builders[builder].build(solutions[builder], builderDeadline);
+                        return null;
+                    }
+                });
+            }
+            pool.invokeAll(runs);
+        } else
+        {
+            for (int i = 0; i < builders.length; i++)
+            {
+                solutions[i] = new Solution(problem);
+                built[i] = builders[i].build(solutions[i], builderDeadline);
             }
         }
-    }
 
-    private static double computeCost(LinkedList<Job> jobs, Vehicle vehicle)
-    {
-        Task t;
-        double distance = 0;
-        City homeCity = vehicle.getCurrentCity();
-        for (Job j : jobs)
+        // the cheapest solution, the first builder winning ties so that the choice does not depend on timing
+        int best = -1;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 0; i < builders.length; i++)
         {
-            t = tasks[j.getT()];
-            City taskCity;
-            if (j.getA() == PICKUP)
+            if (built[i])
             {
-                taskCity = t.pickupCity;
-                distance += taskCity.distanceTo(homeCity);
-            } else
-            {
-                taskCity = t.deliveryCity;
-                distance += taskCity.distanceTo(homeCity);
+                double cost = evaluate(solutions[i]);
+                if (best == -1 || cost < bestCost)
+                {
+                    best = i;
+                    bestCost = cost;
+                }
             }
-            homeCity = taskCity;
         }
-        return distance * vehicle.costPerKm();
+        if (best == -1)
+        {
+            selectInitialSolution(new NearestVehicleBuilder(problem));
+        } else
+        {
+            jobList.copyFrom(solutions[best]);
+            startFrom(deadline);
+        }
     }
 
-    private Task[] getArray(TaskSet tasks)
+    /**
+     * Start from a solution built elsewhere, see DecompositionSearch.
+     *
+     * @param solution solution of the problem of this planner, it is copied
+     * @param deadline System.nanoTime() value at which compiling its routes stops
+     */
+    void startFrom(Solution solution, long deadline)
+    {
+        jobList.copyFrom(solution);
+        startFrom(deadline);
+    }
+
+    Problem getProblem()
+    {
+        return problem;
+    }
+
+    /**
+     * Start from the solution of a single builder, which has no deadline.
+     */
+    private void selectInitialSolution(InitialSolutionBuilder builder)
     {
-        Task[] taskArray = new Task[tasks.size()];
-        for (Task task : tasks)
+        if (!builder.build(jobList, Long.MAX_VALUE))
         {
-            taskArray[task.id] = task;
+            throw new IllegalArgumentException("Task do not fit any vehicle");
         }
-        return taskArray;
+        startFrom(Long.MAX_VALUE);
     }
 
     /**
-     * Give all the tasks to the biggest vehicle. If there exist some tasks that do not fit for the vehicle, then the
-     * problem is unsolvable.
+     * Start from the best solution of a previous plan() call instead of building a new one: the tasks that are gone
+     * are dropped from its routes, the tasks that remain keep their positions, and the new tasks are inserted at
+     * their cheapest positions. A task remains if the new task with its id has the same cities and weight.
+     *
+     * @param previous snapshot of the previous solution
+     * @param deadline System.nanoTime() value at which the insertion has to give up
+     *
+     * @return number of tasks added or removed since the snapshot, or -1 if it cannot be used because the vehicles
+     * changed or a task could not be inserted; jobList must then be rebuilt with selectInitialSolution
      */
-    public void selectInitialSolution()
+    int warmStart(SolutionSnapshot previous, long deadline)
     {
-        // Find biggest vehicle
-        int vehicleId = 0;
-        int capacity = 0;
-        for (Vehicle v : vehicles)
+        if (previous.vehicles() != problem.vehicleCount())
         {
-            int temp;                                                          //not necessary, just use v.capacity()
-            if ((temp = v.capacity()) > capacity)
-            {
-                vehicleId = v.id();
-                capacity = temp;
-            }
+            return -1;
         }
-
-        // Add all tasks to one vehicle
-        LinkedList<Job> jobs = new LinkedList<>();
-        for (int i = 0; i < tasks.length; i++)
+        boolean[] kept = new boolean[problem.taskCount()];
+        int removed = 0;
+        jobList.clear();
+        for (int vehicle = 0; vehicle < previous.vehicles(); vehicle++)
         {
-            if (tasks[i].weight < capacity)
+            for (int job : previous.route(vehicle))
             {
-                jobs.addFirst(new Job(i, DELIVERY));
-                jobs.addFirst(new Job(i, PICKUP));
-            } else
+                int task = Solution.task(job);
+                if (remains(previous, task))
+                {
+                    kept[task] = true;
+                    jobList.add(vehicle, job);
+                } else if (Solution.action(job) == PICKUP)
+                {
+                    removed++;
+                }
+            }
+            // the vehicle itself may have changed
+            if (jobList.maxLoadFrom(vehicle, 0) > problem.capacity(vehicle))
             {
-                throw new IllegalArgumentException("Task do not fit any vehicle");
+                return -1;
             }
         }
-        for (Vehicle vehicle : vehicles)
+
+        int[] added = new int[problem.taskCount()];
+        int count = 0;
+        for (int task = 0; task < kept.length; task++)
         {
-            if (vehicle.id() == vehicleId)
-            {
-                jobList.add(jobs);
-            } else
+            if (!kept[task])
             {
-                jobList.add(new LinkedList<>());
+                added[count++] = task;
             }
         }
+        RegretInsertionBuilder insertion = new RegretInsertionBuilder(problem, 1);
+        if (!insertion.insert(new MoveBuilder(problem, jobList), added, count, deadline))
+        {
+            return -1;
+        }
+        startFrom(deadline);
+        return removed + count;
     }
 
-    public void chooseNeighbours()
+    /**
+     * @return true if a task of a snapshot is also a task of this problem, with the same id
+     */
+    private boolean remains(SolutionSnapshot previous, int task)
     {
-        //Empty neighbour list
-        neighbours.clear();
-        //Get a random vehicle
-        int referenceVehicleId;
-        Random random = new Random();
-        do
-        {
-            referenceVehicleId = random.nextInt(vehicles.size());
-        } while (jobList.get(referenceVehicleId).isEmpty());
-        List<Job> referencePlan = jobList.get(referenceVehicleId);
-
-        //Changing vehicle operator
-        if (vehicles.size() > 1) {
-            for (Vehicle vehicle : vehicles) {
-                if (vehicle.id() != referenceVehicleId) {
-                    int newIndex = referencePlan.get(0).getT();
-                    Task task = tasks[newIndex];
-                    if (task.weight < vehicle.capacity()) {
-                        ArrayList<LinkedList<Job>> tempJob;
-                        tempJob = changingVehicle(referenceVehicleId, vehicle.id());
-                        if (tempJob.get(vehicle.id()).size() <= 2 && tempJob.get(referenceVehicleId).size() <= 2) {
-                            neighbours.add(tempJob);
-                        } else {
-                            if (tempJob.get(vehicle.id()).size() > 2) {
-                                LinkedList<Job> list = changingTaskOrder(tempJob.get(vehicle.id()), vehicle.id(),
-                                        vehicles.get(vehicle.id()).capacity());
-                                tempJob.remove(vehicle.id());
-                                tempJob.add(vehicle.id(), list);
-                            }
-                            if (tempJob.get(referenceVehicleId).size() > 2) {
-                                LinkedList<Job> listReference = changingTaskOrder(tempJob.get(referenceVehicleId),
-                                        referenceVehicleId, vehicles.get(referenceVehicleId).capacity());
-                                tempJob.remove(referenceVehicleId);
-                                tempJob.add(referenceVehicleId, listReference);
-                            }
-                            neighbours.add(tempJob);
-                        }
-                    }
-                }
-            }
-        } else {
-            ArrayList<LinkedList<Job>> tempJob = deepCopy(jobList);
-            if (tempJob.get(0).size() > 2) {
-                LinkedList<Job> list = changingTaskOrder(tempJob.get(0), 0, vehicles.get(0).capacity());
-                tempJob.remove(0);
-                tempJob.add(0, list);
-            }
-            neighbours.add(tempJob);
+        if (task >= problem.taskCount())
+        {
+            return false;
         }
+        return previous.pickupCity(task) == problem.jobCity(Solution.job(task, PICKUP))
+                && previous.deliveryCity(task) == problem.jobCity(Solution.job(task, DELIVERY))
+                && previous.weight(task) == problem.weight(task);
     }
 
-    private ArrayList<LinkedList<Job>> changingVehicle(int referenceIndex, int index)
+    /**
+     * @return the best solution so far, to warm-start the next plan() call
+     */
+    SolutionSnapshot snapshot()
     {
-        ArrayList<LinkedList<Job>> newPlan = deepCopy(jobList);
-
-        List<Job> referencePlan = newPlan.get(referenceIndex);
-
-        Task task = tasks[referencePlan.get(0).getT()];
-        removeJob(newPlan, referenceIndex, task.id);
-
-        LinkedList<Job> vehiclePlan = newPlan.get(index);
-        vehiclePlan.addFirst(new Job(task.id, DELIVERY));
-        vehiclePlan.addFirst(new Job(task.id, PICKUP));
-
-        return newPlan;
+        return new SolutionSnapshot(problem, bestList);
     }
 
-    private LinkedList<Job> deepCopySingle(LinkedList<Job> jobs)
+    /**
+     * Give every task to a random vehicle it fits in, one task after the other. Used to diversify the starting
+     * points of a parallel search.
+     *
+     * @param deadline System.nanoTime() value at which compiling the routes stops
+     */
+    public void selectRandomInitialSolution(long deadline)
     {
-        LinkedList<Job> temp = new LinkedList<>();
-        for (Job job : jobs)
+        jobList.clear();
+        int[] candidates = new int[problem.vehicleCount()];
+        for (int i = 0; i < problem.taskCount(); i++)
         {
-            try
+            int count = 0;
+            for (int v = 0; v < problem.vehicleCount(); v++)
             {
-                temp.add(job.clone());
-            } catch (CloneNotSupportedException e)
+                if (problem.weight(i) <= problem.capacity(v))
+                {
+                    candidates[count++] = v;
+                }
+            }
+            if (count == 0)
             {
-                System.out.println(e);
+                throw new IllegalArgumentException("Task do not fit any vehicle");
             }
+            int vehicleId = candidates[random.nextInt(count)];
+            jobList.add(vehicleId, Solution.job(i, PICKUP));
+            jobList.add(vehicleId, Solution.job(i, DELIVERY));
         }
-        return temp;
+        startFrom(deadline);
     }
 
     /**
-     * Changing task order for one vehicle.
-     *
-     * @param jobs     Plan of the selected vehicle
-     * @param capacity capacity of the selected vehicle
-     *
-     * @return The set which contains all permutation of the jobList
+     * jobList was replaced: recompute the cost of all its routes.
      */
-    private LinkedList<Job> changingTaskOrder(LinkedList<Job> jobs, int vehicleID, double capacity)
+    private void recomputeCosts()
     {
-        HashSet<LinkedList<Job>> set = new HashSet<>();
-        LinkedList<Job> newPlan;
-        int index = 0;
-
-        if (jobs.get(0).getA() == PICKUP)
+        version++;
+        for (int vehicleID = 0; vehicleID < vehicleCost.length; vehicleID++)
         {
-            int task = jobs.get(0).getT();
-            newPlan = deepCopySingle(jobs);
-            removeJob(newPlan, task);
-
-            insertJob(set, newPlan, task, index, capacity);
+            vehicleCost[vehicleID] = costModel.routeCost(jobList, vehicleID);
         }
-        index++;
+        currentCost = objective.update(vehicleCost);
+    }
 
-        LinkedList<Job> temp = null;
-        double minimumCost = Double.MAX_VALUE;
-        for (LinkedList<Job> jb : set)
+    /**
+     * @return objective value of a solution other than jobList
+     */
+    private double evaluate(Solution solution)
+    {
+        for (int vehicleID = 0; vehicleID < routeCost.length; vehicleID++)
         {
-            double tempCost;
-            if ((tempCost = computeCost(jb, vehicles.get(vehicleID))) < minimumCost)
-            {
-                temp = jb;
-                minimumCost = tempCost;
-            }
+            routeCost[vehicleID] = costModel.routeCost(solution, vehicleID);
         }
-        if (temp == null) {return jobs;}
-        else {return temp;}
+        return objective.value(routeCost);
     }
 
     /**
-     * Insert the task back to the plan at different positions.
+     * Anytime search: iterate until the deadline or the maximum number of iterations is reached. The best-so-far
+     * solution is always kept, so stopping at any point still yields a valid plan.
+     *
+     * @param deadline      System.nanoTime() value at which the search has to stop
+     * @param maxIterations maximum number of iterations
      *
-     * @param set      Set of permutation of the plan
-     * @param plan     The plan without the task to be inserted
-     * @param task     the task to be inserted into the plan at different positions
-     * @param index    original index of the task. (used to avoid duplication)
-     * @param capacity capacity of the vehicle
+     * @return number of iterations performed
      */
-    private void insertJob(HashSet<LinkedList<Job>> set, LinkedList<Job> plan, int task, int index, double capacity)
+    public int search(long deadline, int maxIterations)
     {
-        int i = 0;
-        double load = 0;
-        double taskWeight = tasks[task].weight;
-
-        for (Job j : plan)
+        long start = System.nanoTime();
+        long now = start;
+        int counter = 0;
+        int untilCheck = 1;
+        while (now - deadline < 0 && counter < maxIterations && !converged)
         {
-            if (((capacity - load) > taskWeight) && (i != index))
+            step(deadline);
+            counter++;
+            if (--untilCheck == 0)
             {
-                LinkedList<Job> newPlan = deepCopySingle(plan);
-                newPlan.add(i, new Job(task, PICKUP));
-
-                insertDelivery(set, newPlan, task, capacity);
+                now = System.nanoTime();
+                // re-calibrate so that the clock is read about every CLOCK_CHECK_NANOS
+                double nanosPerIteration = (double) (now - start) / counter;
+                untilCheck = (int) Math.max(1, Math.min(CLOCK_CHECK_NANOS / Math.max(nanosPerIteration, 1), 1 << 16));
+                if (checkpoint != null)
+                {
+                    checkpoint.offer(problem, bestList, finalCost);
+                }
+                // another planner of a parallel search is close enough to the lower bound, the search is over
+                if (sharedBestCost != null && closeToBound(Double.longBitsToDouble(sharedBestCost.get())))
+                {
+                    converged = true;
+                }
             }
+        }
+        iterations += counter;
+        return counter;
+    }
 
-            int weight = tasks[j.getT()].weight;
+    /**
+     * One iteration: a ruin and recreate step every lns-interval iterations, a local search step otherwise. Only
+     * search() offers the best solution to the checkpoint, not the iterations run on their own.
+     *
+     * @param deadline System.nanoTime() value at which a ruin and recreate step has to give up
+     */
+    public void step(long deadline)
+    {
+        double best = finalCost;
+        if (lns != null && ++steps % lnsInterval == 0)
+        {
+            ruinAndRecreate(deadline);
+        } else
+        {
+            chooseNeighbours();
+            localChoice();
+        }
 
-            if (j.getA() == PICKUP)
+        if (finalCost < best)
+        {
+            sinceImprovement = 0;
+            restarts = 0;
+            converged = closeToBound(finalCost);
+        } else if (stagnationWindow > 0 && ++sinceImprovement >= stagnationWindow)
+        {
+            sinceImprovement = 0;
+            if (restarts < maxRestarts)
             {
-                load += weight; // Pickup
+                restarts++;
+                perturb(deadline);
             } else
             {
-                load -= weight; // Delivery
+                converged = true;
             }
-            i++;
         }
     }
 
     /**
-     * Insert the task back to the plan at different positions.
-     *
-     * @param set      Set of permutation of the plan
-     * @param plan     The plan without the deliveryTask
-     * @param task     the DeliveryTask to be inserted into the plan at different positions
-     * @param capacity capacity of the vehicle
+     * @return true if a solution of the given cost is within stopGap of the lower bound
      */
-    private void insertDelivery(HashSet<LinkedList<Job>> set, LinkedList<Job> plan, int task, double capacity)
+    private boolean closeToBound(double cost)
     {
-        boolean isAfterPickup = false;
-        double load = 0;
-        int index = 0;
+        return cost - lowerBound <= stopGap * cost;
+    }
 
-        for (Job j : plan)
+    /**
+     * Restart from the current solution, ruined and recreated; the acceptance strategy is not asked.
+     */
+    private void perturb(long deadline)
+    {
+        if (!perturbation.step(jobList, random, deadline))
+        {
+            return;
+        }
+        jobList.copyFrom(perturbation.candidate());
+        recomputeCosts();
+        if (currentCost < finalCost)
         {
-            if (j.getT() == task)
+            bestList.copyFrom(jobList);
+            finalCost = currentCost;
+            publishBestCost();
+        }
+        if (visited != null)
+        {
+            visited.add(jobList.fingerprint());
+        }
+        acceptance.update(null, true, currentCost);
+    }
+
+    /**
+     * @return true once the search has stopped improving: search() returns, and further iterations are wasted
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    /**
+     * @return lower bound of the objective, see LowerBound
+     */
+    public double getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * A large neighbourhood search step: the acceptance strategy decides whether the ruined and recreated solution
+     * replaces jobList, like it does for the neighbour chosen by localChoice.
+     */
+    private void ruinAndRecreate(long deadline)
+    {
+        long start = listeners.length == 0 ? 0 : System.nanoTime();
+        boolean built = lns.step(jobList, random, deadline);
+        double candidateCost = built ? evaluate(lns.candidate()) : Double.MAX_VALUE;
+        boolean newBest = built && candidateCost < finalCost;
+        boolean better = built && candidateCost < currentCost;
+        boolean accepted = built && acceptance.accept(currentCost, candidateCost, random);
+        if (accepted)
+        {
+            jobList.copyFrom(lns.candidate());
+            recomputeCosts();
+            if (visited != null)
             {
-                isAfterPickup = true;
+                visited.add(jobList.fingerprint());
             }
+        }
+        if (newBest)
+        {
+            bestList.copyFrom(lns.candidate());
+            finalCost = candidateCost;
+            publishBestCost();
+        }
+        lns.reward(newBest, better, accepted);
+        acceptance.update(null, accepted, currentCost);
+        generateNanos = 0;
+        iterationDone(built ? 1 : 0, accepted, start);
+    }
+
+    /**
+     * @return weights of the large neighbourhood search operators, empty when it is not used
+     */
+    public String getLnsWeights()
+    {
+        return lns == null ? "" : lns.toString();
+    }
+
+    /**
+     * @return number of iterations performed by search() so far
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Publish every improvement of the best-so-far cost to a cost shared by several planners, and stop searching
+     * once the shared cost is within stop-gap of the lower bound, see ParallelSearch.
+     */
+    public void shareBestCost(AtomicLong sharedBestCost)
+    {
+        this.sharedBestCost = sharedBestCost;
+        publishBestCost();
+    }
+
+    /**
+     * Report every following iteration to a listener.
+     */
+    void addListener(SearchListener listener)
+    {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
 
-            // current payload
-            int weight = tasks[j.getT()].weight;
+    /**
+     * Offer the best solution to a checkpoint during every following search().
+     */
+    void setCheckpoint(Checkpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
 
-            if (j.getA() == PICKUP)
+    private void publishBestCost()
+    {
+        if (sharedBestCost != null)
+        {
+            ParallelSearch.publish(sharedBestCost, finalCost);
+        }
+    }
+
+    /**
+     * Generate the neighbourhood on several threads of a pool: each thread works on its own copy of jobList and
+     * keeps its own cheapest neighbours, which localChoice reduces in neighbour order. The result of the search does
+     * not depend on the number of threads.
+     *
+     * @param pool    pool to run on
+     * @param threads number of parts the neighbourhood is split in
+     */
+    public void parallelNeighbourhood(ForkJoinPool pool, int threads)
+    {
+        this.pool = pool;
+        this.workers = new Worker[threads];
+        this.chunks = new RecursiveAction[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            final Worker worker = new Worker(new Solution(problem));
+            final int chunk = i;
+            workers[i] = worker;
+            chunks[i] = new RecursiveAction()
             {
-                load += weight; // Pickup
-            } else
+                @Override
+                protected void compute()
+                {
+                    worker.generate(neighbourCount * chunk / workers.length,
+                            neighbourCount * (chunk + 1) / workers.length);
+                }
+            };
+        }
+        root = new RecursiveAction()
+        {
+            @Override
+            protected void compute()
             {
-                load -= weight; // Delivery
+                invokeAll(chunks);
             }
+        };
+    }
 
-            if (load > capacity)
+    /**
+     * Every operator proposes its candidates for this iteration, then the workers build them.
+     */
+    public void chooseNeighbours()
+    {
+        long start = listeners.length == 0 ? 0 : System.nanoTime();
+        //Empty neighbour list
+        neighbourCount = 0;
+        for (Worker worker : workers)
+        {
+            worker.bestCount = 0;
+        }
+        for (int k = 0; k < operators.length; k++)
+        {
+            int candidates = operators[k].prepare(jobList, random);
+            for (int i = 0; i < candidates; i++)
             {
-                return;
+                neighbourOperator[neighbourCount] = k;
+                neighbourCandidate[neighbourCount] = i;
+                neighbourCount++;
             }
+            statistics.proposed(k, candidates);
+        }
 
-            if (isAfterPickup)
+        if (workers.length == 1 || neighbourCount < 2)
+        {
+            workers[0].generate(0, neighbourCount);
+        } else
+        {
+            for (RecursiveAction chunk : chunks)
             {
-                LinkedList<Job> newPlan = deepCopySingle(plan);
-                newPlan.add(index + 1, new Job(task, DELIVERY));
-                set.add(newPlan);
+                chunk.reinitialize();
             }
-            index++;
+            root.reinitialize();
+            pool.invoke(root);
+        }
+        if (listeners.length > 0)
+        {
+            generateNanos = System.nanoTime() - start;
         }
     }
 
-
-    private ArrayList<LinkedList<Job>> deepCopy(ArrayList<LinkedList<Job>> initialList)
+    /**
+     * Builds a part of the neighbourhood on its own copy of jobList. Everything it writes is either its own or a
+     * neighbour slot no other worker touches.
+     */
+    private final class Worker
     {
-        ArrayList<LinkedList<Job>> newList = new ArrayList<>();
-        for (LinkedList<Job> list : initialList)
+        private final MoveBuilder builder;
+        private int solutionVersion = -1;
+
+        // cheapest neighbours built by this worker, in increasing index order
+        private final int[] bestSolutions = new int[neighbours.length];
+        private int bestCount;
+        private double minCost;
+
+        Worker(Solution solution)
+        {
+            this.builder = new MoveBuilder(problem, solution);
+        }
+
+        /**
+         * Build the neighbours from..to-1 and keep the cheapest ones.
+         */
+        void generate(int from, int to)
         {
-            LinkedList<Job> temp = new LinkedList<>();
-            for (Job job : list)
+            Solution solution = builder.solution();
+            if (solution != jobList && solutionVersion != version)
+            {
+                solution.copyFrom(jobList);
+                solutionVersion = version;
+            }
+            bestCount = 0;
+            minCost = Double.MAX_VALUE;
+            for (int i = from; i < to; i++)
             {
-                try
+                Move move = neighbours[i];
+                move.clear();
+                if (!operators[neighbourOperator[i]].build(neighbourCandidate[i], builder, move))
                 {
-                    temp.add(job.clone());
-                } catch (CloneNotSupportedException e)
+                    continue;
+                }
+                double tempCost = objective.valueAfter(vehicleCost, move);
+                if (tempCost <= minCost && acceptance.admissible(move, tempCost, finalCost))
                 {
-                    System.out.println(e);
+                    neighbourFingerprint[i] = builder.fingerprint(move);
+                    if (visited != null && visited.contains(neighbourFingerprint[i]))
+                    {
+                        continue;
+                    }
+                    if (tempCost != minCost)
+                    {
+                        bestCount = 0;
+                    }
+                    bestSolutions[bestCount++] = i;
+                    minCost = tempCost;
                 }
             }
-            newList.add(temp);
         }
-        return newList;
     }
 
     public List<Plan> getPlan()
     {
+        DistanceCache distances = problem.distances();
         List<Plan> finalList = new ArrayList<>();
-        int vehicleID = 0;
-        for (LinkedList<Job> plan : bestList)
+        for (int vehicleID = 0; vehicleID < bestList.vehicles(); vehicleID++)
         {
             //Initialize plan
-            City current = vehicles.get(vehicleID).getCurrentCity();
-            Plan completePlan = new Plan(current);
+            int current = problem.vehicle(vehicleID).getCurrentCity().id;
+            Plan completePlan = new Plan(distances.city(current));
             //create correct Plan
-            if (plan != null)
+            for (int i = 0; i < bestList.size(vehicleID); i++)
             {
-                for (Job action : plan)
+                int action = bestList.get(vehicleID, i);
+                //Get task from action
+                Task currentTask = problem.task(Solution.task(action));
+                //follow the cached shortest path to action city
+                int actionCity = problem.jobCity(action);
+                for (City city : distances.path(current, actionCity))
                 {
-                    //Get task from action
-                    Task currentTask = tasks[action.getT()];
-                    //find route to action city
-                    if (action.getA() == PICKUP)
-                    {
-                        for (City city : current.pathTo(currentTask.pickupCity))
-                        {
-                            completePlan.appendMove(city);
-                        }
-                        completePlan.appendPickup(currentTask);
-                        current = currentTask.pickupCity;
-                    } else
-                    {
-                        for (City city : current.pathTo(currentTask.deliveryCity))
-                        {
-                            completePlan.appendMove(city);
-                        }
-                        completePlan.appendDelivery(currentTask);
-                        current = currentTask.deliveryCity;
-                    }
+                    completePlan.appendMove(city);
+                }
+                current = actionCity;
+                if (Solution.action(action) == PICKUP)
+                {
+                    completePlan.appendPickup(currentTask);
+                } else
+                {
+                    completePlan.appendDelivery(currentTask);
                 }
             }
             finalList.add(completePlan);
-            vehicleID++;
         }
-        while (finalList.size() < vehicles.size())
+        while (finalList.size() < problem.vehicleCount())
         {
             finalList.add(Plan.EMPTY);
         }
-        System.out.println("Final cost: " + finalCost);
         return finalList;
     }
 
+    /**
+     * Move the jobs of the best solution that lie on the way of an earlier leg of their route there, see
+     * RouteCompiler; its routes then only get shorter, and its cost is recomputed.
+     *
+     * @param deadline System.nanoTime() value at which the moves stop, the routes are valid at any point
+     *
+     * @return number of jobs moved
+     */
+    int compileBest(long deadline)
+    {
+        int moved = RouteCompiler.compile(problem, bestList, deadline);
+        if (moved > 0)
+        {
+            finalCost = evaluate(bestList);
+            publishBestCost();
+        }
+        return moved;
+    }
+
+    /**
+     * @return objective value of the best solution found so far, its total cost with the default objective
+     */
+    public double getFinalCost()
+    {
+        return finalCost;
+    }
+
     public void localChoice()
     {
-        ArrayList<ArrayList<LinkedList<Job>>> bestSolutions = new ArrayList<>();
+        long start = listeners.length == 0 ? 0 : System.nanoTime();
+        // reduce the cheapest neighbours of every worker, they stay in neighbour order; several moves leading to the
+        // same solution count once
+        int bestCount = 0;
         double minCost = Double.MAX_VALUE;
-//        System.out.println("Neighbours: " + neighbours.size());
-        for (ArrayList<LinkedList<Job>> list : neighbours)
+        for (Worker worker : workers)
         {
-            double tempCost = 0;
-            int vehicleID = 0;
-//            System.out.println("List: " + list.size());
-            for (LinkedList<Job> vehicleJob : list)
+            if (worker.bestCount == 0 || worker.minCost > minCost)
             {
-//                System.out.print("Vehicle Job " + vehicleID);
-//                System.out.print(" " + vehicleJob);
-//                System.out.print(": " + vehicleJob.size()+"\n");
-                tempCost += computeCost(vehicleJob, vehicles.get(vehicleID));
-                vehicleID++;
+                continue;
             }
-            if (tempCost <= minCost)
+            if (worker.minCost != minCost)
             {
-                if (tempCost != minCost)
+                bestCount = 0;
+                minCost = worker.minCost;
+            }
+            for (int k = 0; k < worker.bestCount; k++)
+            {
+                int candidate = worker.bestSolutions[k];
+                if (indexOfFingerprint(bestCount, neighbourFingerprint[candidate]) < 0)
                 {
-                    bestSolutions.clear();
+                    bestSolutions[bestCount++] = candidate;
                 }
-                bestSolutions.add(list);
-                minCost=tempCost;
             }
         }
-        if (bestSolutions.isEmpty())
+        if (bestCount == 0)
         {
-            System.out.println("Didn't Find any neighbor solution!");
+            acceptance.update(null, false, currentCost);
+            iterationDone(0, false, start);
             return;
         }
-        Random random = new Random();
-        int chosenSolution = random.nextInt(bestSolutions.size());
-        ArrayList<LinkedList<Job>> bestSolution = bestSolutions.get(chosenSolution);
-
-        //Save best solution
-        if (minCost < finalCost)
+        int chosenSolution = bestSolutions[random.nextInt(bestCount)];
+        Move bestSolution = neighbours[chosenSolution];
+        int operator = neighbourOperator[chosenSolution];
+        statistics.selected(operator);
+        if (visited != null)
         {
-            bestList = bestSolution;
-            finalCost = minCost;
+            visited.add(neighbourFingerprint[chosenSolution]);
         }
 
-        int cost = 0;
-        int vehicleID = 0;
-        for (LinkedList<Job> vehicleJob : bestSolution)
-        {
-            cost += computeCost(vehicleJob, vehicles.get(vehicleID));
-            vehicleID++;
-        }
-        System.out.println("BEST COST: " + minCost + "  Actual Cost: " + cost);
-        double probability = random.nextDouble();
+        double tempCost1 = currentCost;
+        applyMove(bestSolution);
 
-        double tempCost1 = 0;
-        int vehicleID2 = 0;
-        for (LinkedList<Job> vehicleJob : jobList)
+        //Save best solution
+        if (currentCost < finalCost)
         {
-            tempCost1 += computeCost(vehicleJob, vehicles.get(vehicleID2));
-            vehicleID2++;
+            bestList.copyFrom(jobList);
+            finalCost = currentCost;
+            publishBestCost();
+            statistics.improved(operator);
         }
 
-        if (tempCost1 > minCost)
+        boolean accepted = acceptance.accept(tempCost1, minCost, random);
+        if (accepted)
         {
-            if (probability < PROBABILITY)
-            {
-                jobList = bestSolution;
-            }
-
+            statistics.accepted(operator);
         } else
         {
-            if (probability > PROBABILITY)
-            {
-                jobList = bestSolution;
-            }
+            undoMove(bestSolution);
         }
-//        for (LinkedList<Job> list : jobList){
-//            System.out.println(list);
-//        }
+        acceptance.update(bestSolution, accepted, currentCost);
+        iterationDone(neighbourCount, accepted, start);
     }
 
-    @Override
-    public String toString(){
-        String string = new String();
-        for (LinkedList<Job> list: jobList){
-            string += list.toString() + "\n";
-        }
-        return string;
-    }
-
-    private class Job implements Cloneable
+    /**
+     * @return index of a fingerprint among the fingerprints of the first count best solutions, -1 if it is not one
+     */
+    private int indexOfFingerprint(int count, long fingerprint)
     {
-        private final int t; // index of the task in tasks array
-        private final int a; // PICKUP or DELIVERY
-
-        public Job(int t, int a)
+        for (int k = 0; k < count; k++)
         {
-            this.t = t;
-            this.a = a;
+            if (neighbourFingerprint[bestSolutions[k]] == fingerprint)
+            {
+                return k;
+            }
         }
+        return -1;
+    }
 
-        public Job(Job j)
+    private void iterationDone(int neighbours, boolean accepted, long start)
+    {
+        if (listeners.length == 0)
         {
-            this.t = j.getT();
-            this.a = j.getA();
+            return;
         }
-
-        @Override
-        public boolean equals(Object o)
+        long chooseNanos = System.nanoTime() - start;
+        for (SearchListener listener : listeners)
         {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            Job job = (Job) o;
-
-            if (t != job.t) return false;
-            return a == job.a;
-
+            listener.iterationDone(neighbours, accepted, currentCost, finalCost, generateNanos, chooseNanos);
         }
+    }
 
-        @Override
-        public int hashCode()
-        {
-            int result = t;
-            result = 31 * result + a;
-            return result;
-        }
+    /**
+     * @return success counters of the neighbourhood operators
+     */
+    public OperatorStatistics getOperatorStatistics()
+    {
+        return statistics;
+    }
 
-        public int getT()
-        {
-            return t;
-        }
+    private void applyMove(Move move)
+    {
+        version++;
+        move.apply(jobList);
+        refreshCosts(move);
+    }
 
-        public int getA()
-        {
-            return a;
-        }
+    private void undoMove(Move move)
+    {
+        version++;
+        move.undo(jobList);
+        refreshCosts(move);
+    }
 
-        @Override
-        public String toString()
+    /**
+     * Recompute the cached cost of the routes touched by a move, so that rounding errors of the deltas do not
+     * accumulate in currentCost.
+     */
+    private void refreshCosts(Move move)
+    {
+        for (int k = 0; k < move.steps(); k++)
         {
-            if (a == PICKUP)
-            {
-                return ("PICKUP TASK " + t);
-            } else
-            {
-                return ("DELIVER TASK " + t);
-            }
+            vehicleCost[move.from(k)] = costModel.routeCost(jobList, move.from(k));
+            vehicleCost[move.to(k)] = costModel.routeCost(jobList, move.to(k));
         }
+        currentCost = objective.update(vehicleCost);
+    }
 
-        @Override
-        protected Job clone() throws CloneNotSupportedException
-        {
-            return (Job) super.clone();
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder();
+        for (int vehicleID = 0; vehicleID < jobList.vehicles(); vehicleID++){
+            builder.append(jobList.toString(vehicleID)).append('\n');
         }
+        return builder.toString();
     }
 }
@@ -12,23 +12,39 @@ import logist.task.TaskDistribution;
 import logist.task.TaskSet;
 import logist.topology.Topology;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * A very simple auction agent that assigns all tasks to its first vehicle and
- * handles them sequentially.
+ * A centralized agent that plans the tasks of all its vehicles with a stochastic local search.
+ * <p>
+ * Every agent has its own instance and all its state is in it: several agents can plan at the same time in one
+ * JVM. The parallel parts of their searches share the threads of PlannerPool.
  *
  */
 @SuppressWarnings("unused")
 public class CentralizedTemplate implements CentralizedBehavior {
 
-    private final int TOTAL_ITERATIONS = 10000;
+    private static final int TOTAL_ITERATIONS = 10000;
 
     private Topology topology;
     private TaskDistribution distribution;
     private Agent agent;
+    private DistanceCache distances;
     private long timeout_setup;
     private long timeout_plan;
+    private SearchSettings settings;
+    private ForkJoinPool pool;
+    // pool of the exact search, the decomposition and the initial solution builders
+    private ForkJoinPool phasePool;
+    private SearchMetrics metrics;
+    private TraceWriter trace;
+    // best solution of the previous plan() call, or of the checkpoint of a previous run
+    private SolutionSnapshot previous;
+    private Checkpoint checkpoint;
+    // previous comes from the checkpoint, the next plan() goes on with its search
+    private boolean resume;
     
     @Override
     public void setup(Topology topology, TaskDistribution distribution,
@@ -47,32 +63,200 @@ public class CentralizedTemplate implements CentralizedBehavior {
         timeout_setup = ls.get(LogistSettings.TimeoutKey.SETUP);
         // the plan method cannot execute more than timeout_plan milliseconds
         timeout_plan = ls.get(LogistSettings.TimeoutKey.PLAN);
+
+        settings = new SearchSettings(agent);
+        int threads = settings.getStarts() * settings.getNeighbourThreads();
+        if (threads > 1)
+        {
+            pool = PlannerPool.get();
+        }
+        phasePool = PlannerPool.get(settings.getPhaseThreads());
+
+        metrics = new SearchMetrics();
+        if (settings.isMetricsJmx())
+        {
+            metrics.register(agent.name());
+        }
         
         this.topology = topology;
         this.distribution = distribution;
         this.agent = agent;
+        this.distances = new DistanceCache(topology);
+        if (!settings.getCheckpointFile().isEmpty())
+        {
+            checkpoint = new Checkpoint(settings.getCheckpointFile(), Checkpoint.fingerprint(distances),
+                    settings.getSeed(), settings.getCheckpointInterval());
+            previous = checkpoint.load();
+            resume = previous != null;
+            if (resume)
+            {
+                System.out.println("Resuming from a checkpoint of cost " + checkpoint.getLoadedCost() + ", seed "
+                        + checkpoint.getLoadedSeed() + ".");
+            }
+        }
     }
 
     @Override
     public List<Plan> plan(List<Vehicle> vehicles, TaskSet tasks) {
         long time_start = System.currentTimeMillis();
+        long deadline = System.nanoTime() + (long) (timeout_plan * settings.getPlanBudget() * 1000000L);
+        // half of the time the search leaves may go to compiling the routes, the rest is for building the plans
+        long compileDeadline = deadline + (long) (timeout_plan * (1 - settings.getPlanBudget()) * 1000000L / 2);
 
-        CentralizedPlanner plans = new CentralizedPlanner(vehicles, tasks);
+        metrics.reset();
+        trace = openTrace();
+        CentralizedPlanner plans = null;
         int counter = 0;
-        do{
-            plans.chooseNeighbours();
-            plans.localChoice();
-            counter++;
-            System.out.println("plan "+counter);
-            System.out.println(plans.toString());
-        }while(counter < TOTAL_ITERATIONS);
+        String method;
+        if (checkpoint != null) {
+            checkpoint.start();
+        }
+        if ((settings.isWarmStart() || resume) && previous != null) {
+            // repair the previous solution, for a number of iterations that grows with the change; an interrupted
+            // plan of the same tasks goes on with the usual search
+            plans = newPlanner(vehicles, tasks, settings.getSeed());
+            int changes = plans.warmStart(previous, deadline);
+            if (changes >= 0) {
+                long iterations = resume && changes == 0
+                        ? (settings.isAnytime() ? Integer.MAX_VALUE : TOTAL_ITERATIONS)
+                        : (long) changes * settings.getRepairIterations();
+                counter = plans.search(deadline, (int) Math.min(Integer.MAX_VALUE, iterations));
+            } else {
+                plans = null;
+            }
+        }
+        resume = false;
+        int threshold = settings.getDecompositionThreshold();
+        if (plans != null) {
+            method = "warm start";
+        } else if (tasks.size() <= settings.getExactThreshold()
+                && TotalCostObjective.NAME.equals(settings.getObjective())) {
+            // the search gives the branch-and-bound a good bound to prune with
+            plans = newPlanner(vehicles, tasks, settings.getSeed());
+            plans.selectInitialSolution(phasePool, deadline);
+            counter = plans.search(deadline, TOTAL_ITERATIONS);
+            BranchAndBound exact = new BranchAndBound(plans.getProblem(), phasePool);
+            Solution optimum = exact.solve(plans.getFinalCost(), deadline);
+            if (optimum != null) {
+                plans.startFrom(optimum, deadline);
+            }
+            method = (exact.isOptimal() ? "optimal exact search" : "exact search stopped at the deadline") + ", "
+                    + exact.getNodes() + " nodes";
+        } else if (threshold > 0 && tasks.size() >= threshold) {
+            DecompositionSearch search = new DecompositionSearch(phasePool, settings);
+            plans = search.search(newPlanner(vehicles, tasks, settings.getSeed()), settings.getSeed(), deadline,
+                    settings.isAnytime() ? Integer.MAX_VALUE : TOTAL_ITERATIONS);
+            counter = search.getIterations();
+            method = "decomposition";
+        } else if (settings.getStarts() > 1) {
+            ParallelSearch search = new ParallelSearch(pool, settings);
+            if (isObserved()) {
+                search.addListener(metrics);
+            }
+            if (trace != null) {
+                search.addListener(trace);
+            }
+            search.setCheckpoint(checkpoint);
+            plans = search.search(vehicles, tasks, distances, settings.getSeed(), deadline,
+                    settings.isAnytime() ? Integer.MAX_VALUE : TOTAL_ITERATIONS);
+            counter = search.getIterations();
+            method = settings.getStarts() + " starts";
+        } else {
+            plans = newPlanner(vehicles, tasks, settings.getSeed());
+            plans.selectInitialSolution(phasePool, deadline);
+            counter = plans.search(deadline, settings.isAnytime() ? Integer.MAX_VALUE : TOTAL_ITERATIONS);
+            method = "search";
+        }
+
+        // pick up and deliver on the way wherever the vehicles pass through the city of a later job
+        int compiled = plans.compileBest(compileDeadline);
 
         long time_end = System.currentTimeMillis();
         long duration = time_end - time_start;
-        System.out.println("The plan was generated in "+duration+" milliseconds.");
-        List<Plan> finalPlans = plans.getPlan();
-        System.out.println(finalPlans.toString());
+        // one line per plan, the details go to the metrics and the trace
+        System.out.println("Plan of cost " + plans.getFinalCost() + " (" + method + ") in " + duration + " ms, "
+                + counter + " iterations, " + iterationsPerSecond(counter, duration) + " iterations/s, gap "
+                + gapPercent(plans.getFinalCost(), plans.getLowerBound()) + "% to the lower bound"
+                + (plans.isConverged() ? ", stopped on convergence" : ""));
+        metrics.planDone(duration, plans.getLowerBound(), compiled, plans.getOperatorStatistics().toString(),
+                plans.getLnsWeights());
+        if (trace != null) {
+            trace.comment(metrics + "\n" + metrics.getOperatorStatistics() + metrics.getLnsWeights());
+            closeTrace();
+        }
+        previous = plans.snapshot();
+        if (checkpoint != null) {
+            checkpoint.save(previous, plans.getFinalCost());
+        }
+        return plans.getPlan();
+    }
+
+    private CentralizedPlanner newPlanner(List<Vehicle> vehicles, TaskSet tasks, long seed)
+    {
+        CentralizedPlanner planner = new CentralizedPlanner(vehicles, tasks, distances, settings, seed);
+        if (isObserved())
+        {
+            planner.addListener(metrics);
+        }
+        if (trace != null)
+        {
+            planner.addListener(trace);
+        }
+        planner.setCheckpoint(checkpoint);
+        if (settings.getNeighbourThreads() > 1)
+        {
+            planner.parallelNeighbourhood(pool, settings.getNeighbourThreads());
+        }
+        return planner;
+    }
+
+    /**
+     * The searches only report their iterations to the metrics when they can be read, over JMX or in the trace, so
+     * that they skip the timing of the iterations otherwise.
+     */
+    private boolean isObserved()
+    {
+        return settings.isMetricsJmx() || trace != null;
+    }
+
+    /**
+     * Open the trace of one plan() call, appended to the trace file, null when there is none.
+     */
+    private TraceWriter openTrace()
+    {
+        if (settings.getTraceFile().isEmpty())
+        {
+            return null;
+        }
+        try
+        {
+            return new TraceWriter(settings.getTraceFile(), settings.getTraceSample());
+        } catch (IOException exc)
+        {
+            System.out.println("There was a problem opening the trace file.");
+            return null;
+        }
+    }
+
+    private void closeTrace()
+    {
+        try
+        {
+            trace.close();
+        } catch (IOException exc)
+        {
+            System.out.println("There was a problem closing the trace file.");
+        }
+        trace = null;
+    }
+
+    private static double gapPercent(double cost, double lowerBound)
+    {
+        return cost == 0 ? 0 : Math.round(1000 * (cost - lowerBound) / cost) / 10.0;
+    }
 
-        return finalPlans;
+    private static long iterationsPerSecond(int iterations, long durationMillis)
+    {
+        return durationMillis == 0 ? iterations * 1000L : iterations * 1000L / durationMillis;
     }
 }
@@ -0,0 +1,83 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * The original operator of the planner: the first task of a random vehicle goes to its cheapest position in every
+ * other vehicle it fits in, then the new first task of that vehicle is moved to its cheapest position.
+ */
+final class ChangingVehicleOperator implements NeighbourOperator
+{
+    static final String NAME = "changing-vehicle";
+
+    private final Problem problem;
+    // vehicle receiving the reference task in every candidate
+    private final int[] targets;
+    private int referenceVehicle;
+    private int referenceTask;
+
+    ChangingVehicleOperator(Problem problem)
+    {
+        this.problem = problem;
+        this.targets = new int[problem.vehicleCount()];
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public int maxCandidates()
+    {
+        return targets.length;
+    }
+
+    @Override
+    public int prepare(Solution solution, Random random)
+    {
+        if (problem.taskCount() == 0)
+        {
+            return 0;
+        }
+        //Get a random vehicle
+        do
+        {
+            referenceVehicle = random.nextInt(problem.vehicleCount());
+        } while (solution.isEmpty(referenceVehicle));
+
+        referenceTask = Solution.task(solution.get(referenceVehicle, 0));
+        int count = 0;
+        if (problem.vehicleCount() > 1) {
+            for (int vehicle = 0; vehicle < problem.vehicleCount(); vehicle++) {
+                if (vehicle != referenceVehicle && problem.weight(referenceTask) <= problem.capacity(vehicle)) {
+                    targets[count++] = vehicle;
+                }
+            }
+        } else {
+            targets[count++] = referenceVehicle;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean build(int candidate, MoveBuilder builder, Move move)
+    {
+        if (targets[candidate] != referenceVehicle)
+        {
+            // the task goes to its cheapest position in the other vehicle
+            builder.relocateToBest(move, referenceTask, referenceVehicle, targets[candidate]);
+        }
+        // then the first task of the reference vehicle is moved to its cheapest position
+        Solution solution = builder.solution();
+        move.apply(solution);
+        int task = solution.size(referenceVehicle) > 2 ? Solution.task(solution.get(referenceVehicle, 0)) : -1;
+        move.undo(solution);
+        if (task >= 0)
+        {
+            builder.relocateToBest(move, task, referenceVehicle, referenceVehicle);
+        }
+        return move.steps() > 0;
+    }
+}
@@ -0,0 +1,353 @@
+package template;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The best solution of the search in a binary file, so that a run can start from where the previous one stopped.
+ * The file is written during long searches, at most once per interval and only when the best solution improved,
+ * and at the end of every plan(). The searches only copy their solution: a writer thread of the checkpoint encodes
+ * and writes it, so a slow disk never holds them up, and a solution it has not started on yet is replaced by a
+ * newer one. The file is first written next to the checkpoint and then renamed over it, so an interrupted run always
+ * leaves a whole file behind. Writing errors stop the checkpoints, they never stop the search.
+ * <p>
+ * The layout is fixed and big-endian, so the file can be mapped in memory; it is read in one go instead, so that
+ * no mapping keeps it open when it is replaced:
+ * <pre>
+ * int    magic, "CKPT"
+ * int    version
+ * long   fingerprint of the topology, see fingerprint(DistanceCache)
+ * long   seed of the search
+ * double cost of the solution, the value of the objective
+ * int    number of tasks n
+ * int    number of vehicles v
+ * int[n] pickup city of every task, int[n] delivery city, int[n] weight
+ * int[v] number of jobs of every vehicle
+ * int[]  jobs of every vehicle, one vehicle after the other, in the Solution encoding
+ * </pre>
+ */
+final class Checkpoint
+{
+    private static final int MAGIC = 0x434B5054;
+    private static final int VERSION = 1;
+    // bytes of the fixed part of the file
+    private static final int HEADER = 4 + 4 + 8 + 8 + 8 + 4 + 4;
+
+    private final Path file;
+    private final Path temporary;
+    private final long topology;
+    private final long seed;
+    private final long intervalNanos;
+    private long lastWrite;
+    private double writtenCost;
+    private boolean failed;
+    // solution handed to the writer thread and not written yet, null when there is none
+    private SolutionSnapshot pending;
+    private double pendingCost;
+    private Thread writer;
+    // seed and cost of the file read by load()
+    private long loadedSeed;
+    private double loadedCost;
+
+    /**
+     * @param file           file of the checkpoint
+     * @param topology       fingerprint of the topology the solutions live in
+     * @param seed           seed of the search, written with the solutions
+     * @param intervalMillis minimum time between two checkpoints of a search
+     */
+    Checkpoint(String file, long topology, long seed, long intervalMillis)
+    {
+        this.file = Paths.get(file);
+        this.temporary = Paths.get(file + ".tmp");
+        this.topology = topology;
+        this.seed = seed;
+        this.intervalNanos = intervalMillis * 1000000L;
+        start();
+    }
+
+    /**
+     * @return fingerprint of the distances between the cities, the same for the same topology
+     */
+    static long fingerprint(DistanceCache distances)
+    {
+        double[][] distance = distances.distances();
+        long fingerprint = distance.length;
+        for (double[] row : distance)
+        {
+            for (double d : row)
+            {
+                // SplitMix64 finalizer, see Solution
+                long z = fingerprint ^ Double.doubleToLongBits(d);
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                fingerprint = z ^ (z >>> 31);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Read the checkpoint file.
+     *
+     * @return the solution of the file, null if there is no file, it is not valid or it was written for another
+     * topology
+     */
+    SolutionSnapshot load()
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                return null;
+            }
+            ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining())
+            {
+                if (channel.read(in) < 0)
+                {
+                    return null;
+                }
+            }
+            in.flip();
+            if (in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != VERSION
+                    || in.getLong() != topology)
+            {
+                return null;
+            }
+            loadedSeed = in.getLong();
+            loadedCost = in.getDouble();
+            int tasks = in.getInt();
+            int vehicles = in.getInt();
+            if (tasks < 0 || vehicles < 0 || in.remaining() < 4L * (3L * tasks + vehicles))
+            {
+                return null;
+            }
+            int[] pickupCity = new int[tasks];
+            int[] deliveryCity = new int[tasks];
+            int[] weight = new int[tasks];
+            in.asIntBuffer().get(pickupCity);
+            in.position(in.position() + 4 * tasks);
+            in.asIntBuffer().get(deliveryCity);
+            in.position(in.position() + 4 * tasks);
+            in.asIntBuffer().get(weight);
+            in.position(in.position() + 4 * tasks);
+            int[][] routes = new int[vehicles][];
+            long jobs = 0;
+            for (int vehicle = 0; vehicle < vehicles; vehicle++)
+            {
+                int size = in.getInt();
+                if (size < 0)
+                {
+                    return null;
+                }
+                routes[vehicle] = new int[size];
+                jobs += size;
+            }
+            if (jobs != 2L * tasks || in.remaining() != 4 * jobs)
+            {
+                return null;
+            }
+            // every task is picked up then delivered by the same vehicle, exactly once
+            int[] vehicleOf = new int[tasks];
+            Arrays.fill(vehicleOf, -1);
+            for (int vehicle = 0; vehicle < vehicles; vehicle++)
+            {
+                int[] route = routes[vehicle];
+                in.asIntBuffer().get(route);
+                in.position(in.position() + 4 * route.length);
+                for (int job : route)
+                {
+                    if (job < 0 || job >= 2 * tasks)
+                    {
+                        return null;
+                    }
+                    int task = Solution.task(job);
+                    if (Solution.action(job) == CentralizedPlanner.PICKUP ? vehicleOf[task] != -1
+                            : vehicleOf[task] != vehicle)
+                    {
+                        return null;
+                    }
+                    vehicleOf[task] = Solution.action(job) == CentralizedPlanner.PICKUP ? vehicle : vehicles;
+                }
+            }
+            return new SolutionSnapshot(pickupCity, deliveryCity, weight, routes);
+        } catch (NoSuchFileException e)
+        {
+            return null;
+        } catch (IOException e)
+        {
+            System.out.println("The checkpoint could not be read: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return seed of the search that wrote the file read by the last load()
+     */
+    long getLoadedSeed()
+    {
+        return loadedSeed;
+    }
+
+    /**
+     * @return cost of the solution read by the last load()
+     */
+    double getLoadedCost()
+    {
+        return loadedCost;
+    }
+
+    /**
+     * Start the checkpoints of a new plan() call, whose solutions are not comparable with the ones written before.
+     */
+    synchronized void start()
+    {
+        lastWrite = System.nanoTime();
+        writtenCost = Double.MAX_VALUE;
+    }
+
+    /**
+     * Write the best solution of a search if it improved and the interval has passed since the last checkpoint.
+     * Called by the searches of a plan, from several threads for a parallel search, so that only the cheapest
+     * solution of them all is written.
+     *
+     * @param cost cost of the solution, the value of the objective
+     */
+    synchronized void offer(Problem problem, Solution solution, double cost)
+    {
+        if (cost < writtenCost && System.nanoTime() - lastWrite >= intervalNanos)
+        {
+            save(new SolutionSnapshot(problem, solution), cost);
+        }
+    }
+
+    /**
+     * Write a solution as soon as the writer thread is free, in place of the one it has not started on yet.
+     *
+     * @param cost cost of the solution, the value of the objective
+     */
+    synchronized void save(SolutionSnapshot snapshot, double cost)
+    {
+        lastWrite = System.nanoTime();
+        writtenCost = cost;
+        if (failed)
+        {
+            return;
+        }
+        pending = snapshot;
+        pendingCost = cost;
+        if (writer == null)
+        {
+            writer = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    writePending();
+                }
+            }, "checkpoint-writer");
+            // an unfinished write leaves the previous file in place, it must not keep the JVM alive
+            writer.setDaemon(true);
+            writer.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Loop of the writer thread: write the pending solutions, outside the lock, until a write fails.
+     */
+    private void writePending()
+    {
+        while (true)
+        {
+            SolutionSnapshot snapshot;
+            double cost;
+            synchronized (this)
+            {
+                while (pending == null)
+                {
+                    try
+                    {
+                        wait();
+                    } catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                snapshot = pending;
+                cost = pendingCost;
+                pending = null;
+            }
+            if (!write(snapshot, cost))
+            {
+                synchronized (this)
+                {
+                    failed = true;
+                    pending = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the file could not be written
+     */
+    private boolean write(SolutionSnapshot snapshot, double cost)
+    {
+        int jobs = 2 * snapshot.taskCount();
+        ByteBuffer out = ByteBuffer.allocate(HEADER + 4 * (3 * snapshot.taskCount() + snapshot.vehicles() + jobs));
+        out.putInt(MAGIC).putInt(VERSION).putLong(topology).putLong(seed).putDouble(cost)
+                .putInt(snapshot.taskCount()).putInt(snapshot.vehicles());
+        for (int task = 0; task < snapshot.taskCount(); task++)
+        {
+            out.putInt(snapshot.pickupCity(task));
+        }
+        for (int task = 0; task < snapshot.taskCount(); task++)
+        {
+            out.putInt(snapshot.deliveryCity(task));
+        }
+        for (int task = 0; task < snapshot.taskCount(); task++)
+        {
+            out.putInt(snapshot.weight(task));
+        }
+        for (int vehicle = 0; vehicle < snapshot.vehicles(); vehicle++)
+        {
+            out.putInt(snapshot.route(vehicle).length);
+        }
+        for (int vehicle = 0; vehicle < snapshot.vehicles(); vehicle++)
+        {
+            for (int job : snapshot.route(vehicle))
+            {
+                out.putInt(job);
+            }
+        }
+        out.flip();
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                while (out.hasRemaining())
+                {
+                    channel.write(out);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e)
+        {
+            System.out.println("The checkpoint could not be written: " + e.getMessage());
+            return false;
+        }
+    }
+}
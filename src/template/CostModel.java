@@ -0,0 +1,214 @@
+package template;
+
+import logist.simulation.Vehicle;
+
+import java.util.List;
+
+/**
+ * Cost of vehicle routes in the {@link Solution} encoding. Besides the full route cost it gives the cost change of
+ * inserting or removing the two jobs of a task, reversing a segment or moving it, in O(1), since such a move only
+ * changes a few edges of the route.
+ * A route starts at the current city of its vehicle and ends at its last job, there is no return trip.
+ */
+final class CostModel
+{
+    // marks the end of a route in cityAt
+    static final int END = -1;
+
+    private final double[][] distance;
+    private final int[] jobCity;
+    private final int[] home;
+    private final double[] costPerKm;
+
+    /**
+     * @param vehicles  vehicles, indexed by id
+     * @param jobCity   city id of every encoded job
+     * @param distances distances of the topology
+     */
+    CostModel(List<Vehicle> vehicles, int[] jobCity, DistanceCache distances)
+    {
+        this(homes(vehicles), costsPerKm(vehicles), jobCity, distances);
+    }
+
+    /**
+     * @param home      city id every route starts from, indexed by vehicle
+     * @param costPerKm cost per kilometre, indexed by vehicle
+     * @param jobCity   city id of every encoded job
+     * @param distances distances of the topology
+     */
+    CostModel(int[] home, double[] costPerKm, int[] jobCity, DistanceCache distances)
+    {
+        this.distance = distances.distances();
+        this.jobCity = jobCity;
+        this.home = home;
+        this.costPerKm = costPerKm;
+    }
+
+    private static int[] homes(List<Vehicle> vehicles)
+    {
+        int[] home = new int[vehicles.size()];
+        for (Vehicle vehicle : vehicles)
+        {
+            home[vehicle.id()] = vehicle.getCurrentCity().id;
+        }
+        return home;
+    }
+
+    private static double[] costsPerKm(List<Vehicle> vehicles)
+    {
+        double[] costPerKm = new double[vehicles.size()];
+        for (Vehicle vehicle : vehicles)
+        {
+            costPerKm[vehicle.id()] = vehicle.costPerKm();
+        }
+        return costPerKm;
+    }
+
+    /**
+     * @return city id the route of a vehicle starts from
+     */
+    int home(int vehicle)
+    {
+        return home[vehicle];
+    }
+
+    double costPerKm(int vehicle)
+    {
+        return costPerKm[vehicle];
+    }
+
+    double routeCost(Solution solution, int vehicle)
+    {
+        double length = 0;
+        int homeCity = home[vehicle];
+        int[] route = solution.route(vehicle);
+        for (int i = 0; i < solution.size(vehicle); i++)
+        {
+            int taskCity = jobCity[route[i]];
+            length += distance[homeCity][taskCity];
+            homeCity = taskCity;
+        }
+        return length * costPerKm[vehicle];
+    }
+
+    double totalCost(Solution solution)
+    {
+        double cost = 0;
+        for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+        {
+            cost += routeCost(solution, vehicle);
+        }
+        return cost;
+    }
+
+    /**
+     * Cost change of inserting a task in a route that does not contain it.
+     *
+     * @param pickupAt   index of the pickup once inserted
+     * @param deliveryAt index of the delivery once inserted, greater than pickupAt
+     */
+    double insertionDelta(Solution solution, int vehicle, int task, int pickupAt, int deliveryAt)
+    {
+        int pickup = jobCity[Solution.job(task, CentralizedPlanner.PICKUP)];
+        int delivery = jobCity[Solution.job(task, CentralizedPlanner.DELIVERY)];
+        int beforePickup = cityAt(solution, vehicle, pickupAt - 1);
+        int afterPickup = cityAt(solution, vehicle, pickupAt);
+        double length;
+        if (deliveryAt == pickupAt + 1)
+        {
+            length = edge(beforePickup, pickup) + edge(pickup, delivery) + edge(delivery, afterPickup)
+                    - edge(beforePickup, afterPickup);
+        } else
+        {
+            int beforeDelivery = cityAt(solution, vehicle, deliveryAt - 2);
+            int afterDelivery = cityAt(solution, vehicle, deliveryAt - 1);
+            length = edge(beforePickup, pickup) + edge(pickup, afterPickup) - edge(beforePickup, afterPickup)
+                    + edge(beforeDelivery, delivery) + edge(delivery, afterDelivery)
+                    - edge(beforeDelivery, afterDelivery);
+        }
+        return length * costPerKm[vehicle];
+    }
+
+    /**
+     * Cost change of removing both jobs of a task from a route.
+     *
+     * @param pickupIndex   current index of the pickup
+     * @param deliveryIndex current index of the delivery, greater than pickupIndex
+     */
+    double removalDelta(Solution solution, int vehicle, int pickupIndex, int deliveryIndex)
+    {
+        int beforePickup = cityAt(solution, vehicle, pickupIndex - 1);
+        int pickup = cityAt(solution, vehicle, pickupIndex);
+        int afterPickup = cityAt(solution, vehicle, pickupIndex + 1);
+        int delivery = cityAt(solution, vehicle, deliveryIndex);
+        int afterDelivery = cityAt(solution, vehicle, deliveryIndex + 1);
+        double length;
+        if (deliveryIndex == pickupIndex + 1)
+        {
+            length = edge(beforePickup, afterDelivery)
+                    - edge(beforePickup, pickup) - edge(pickup, delivery) - edge(delivery, afterDelivery);
+        } else
+        {
+            int beforeDelivery = cityAt(solution, vehicle, deliveryIndex - 1);
+            length = edge(beforePickup, afterPickup) - edge(beforePickup, pickup) - edge(pickup, afterPickup)
+                    + edge(beforeDelivery, afterDelivery)
+                    - edge(beforeDelivery, delivery) - edge(delivery, afterDelivery);
+        }
+        return length * costPerKm[vehicle];
+    }
+
+    /**
+     * Cost change of reversing the jobs from index first to index last included. Distances are symmetric, so only
+     * the two edges at the ends of the segment change.
+     */
+    double reversalDelta(Solution solution, int vehicle, int first, int last)
+    {
+        int before = cityAt(solution, vehicle, first - 1);
+        int head = cityAt(solution, vehicle, first);
+        int tail = cityAt(solution, vehicle, last);
+        int after = cityAt(solution, vehicle, last + 1);
+        double length = edge(before, tail) + edge(head, after) - edge(before, head) - edge(tail, after);
+        return length * costPerKm[vehicle];
+    }
+
+    /**
+     * Cost change of Solution.moveSegment(vehicle, start, length, destination).
+     */
+    double segmentDelta(Solution solution, int vehicle, int start, int length, int destination)
+    {
+        int before = cityAt(solution, vehicle, start - 1);
+        int head = cityAt(solution, vehicle, start);
+        int tail = cityAt(solution, vehicle, start + length - 1);
+        int after = cityAt(solution, vehicle, start + length);
+        // neighbours of the destination in the route without the segment
+        int left = cityAt(solution, vehicle, destination - 1 < start ? destination - 1 : destination - 1 + length);
+        int right = cityAt(solution, vehicle, destination < start ? destination : destination + length);
+        double removal = edge(before, after) - edge(before, head) - edge(tail, after);
+        double insertion = edge(left, head) + edge(tail, right) - edge(left, right);
+        return (removal + insertion) * costPerKm[vehicle];
+    }
+
+    /**
+     * @return the city of the job at index, the vehicle's city for index -1 and END past the end of the route
+     */
+    int cityAt(Solution solution, int vehicle, int index)
+    {
+        if (index < 0)
+        {
+            return home[vehicle];
+        }
+        if (index >= solution.size(vehicle))
+        {
+            return END;
+        }
+        return jobCity[solution.get(vehicle, index)];
+    }
+
+    /**
+     * Length of an edge of a route, an edge to END closes the route and costs nothing.
+     */
+    private double edge(int from, int to)
+    {
+        return to == END ? 0 : distance[from][to];
+    }
+}
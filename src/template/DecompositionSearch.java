@@ -0,0 +1,394 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cluster-first, route-second search for large task sets:
+ * <ol>
+ * <li>the tasks are clustered by the geography of their pickup and delivery cities, one cluster per vehicle: the
+ * clusters start at the home cities of the vehicles, take tasks up to their share of the total weight, in
+ * proportion to the capacity of their vehicle, and move to the city closest to their tasks (k-medoids);</li>
+ * <li>the route of every vehicle through its cluster is searched on its own, all the vehicles in parallel, each with
+ * a CentralizedPlanner of a one-vehicle problem;</li>
+ * <li>the routes are merged, and the tasks at the boundary between two clusters are relocated to their cheapest
+ * position in any vehicle while that lowers the cost;</li>
+ * <li>the global search goes on from the merged solution for the time left.</li>
+ * </ol>
+ * The sub-problems only see their own tasks, so the work of the search grows close to linearly with the number of
+ * tasks. Like ParallelSearch, the result only depends on the seed, not on the number of threads.
+ */
+final class DecompositionSearch
+{
+    // rounds of assignment and medoid update of the clustering
+    private static final int ROUNDS = 3;
+    // a cluster takes tasks weighing up to SLACK times its share of the total weight, its share of the capacity
+    private static final double SLACK = 1.2;
+    // a task is at a boundary when its second closest cluster is at most BOUNDARY times further than its own
+    private static final double BOUNDARY = 1.5;
+    // sweeps of the boundary repair at most
+    private static final int REPAIR_SWEEPS = 5;
+
+    private final ForkJoinPool pool;
+    private final SearchSettings settings;
+    private int iterations;
+
+    /**
+     * @param pool     pool the sub-problems are searched on, null to search them one after the other
+     * @param settings settings of all the searches
+     */
+    DecompositionSearch(ForkJoinPool pool, SearchSettings settings)
+    {
+        this.pool = pool;
+        this.settings = settings;
+    }
+
+    /**
+     * Decompose the problem of a planner, search the parts, and continue the planner from the merged solution.
+     *
+     * @param planner       planner of the whole problem; its current solution is replaced
+     * @param seed          seed of the searches of the sub-problems
+     * @param deadline      System.nanoTime() value at which the search has to stop
+     * @param maxIterations maximum number of iterations of every search
+     *
+     * @return the planner, with the best solution found
+     */
+    CentralizedPlanner search(CentralizedPlanner planner, long seed, final long deadline, final int maxIterations)
+    {
+        Problem problem = planner.getProblem();
+        long now = System.nanoTime();
+        final long subDeadline = now + (long) ((deadline - now) * settings.getDecompositionBudget());
+
+        int vehicles = problem.vehicleCount();
+        boolean[] boundary = new boolean[problem.taskCount()];
+        int[] cluster = cluster(problem, boundary);
+
+        // the sub-problems, their tasks numbered from 0 in the order of the whole problem
+        final int[][] members = new int[vehicles][];
+        int[] sizes = new int[vehicles];
+        for (int vehicle : cluster)
+        {
+            sizes[vehicle]++;
+        }
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            members[vehicle] = new int[sizes[vehicle]];
+            sizes[vehicle] = 0;
+        }
+        for (int task = 0; task < cluster.length; task++)
+        {
+            members[cluster[task]][sizes[cluster[task]]++] = task;
+        }
+
+        final CentralizedPlanner[] subPlanners = new CentralizedPlanner[vehicles];
+        List<Callable<Void>> runs = new ArrayList<>(vehicles);
+        // the sub-problems queue for the threads, each runs for its share of the time once started
+        int parts = 0;
+        for (int[] member : members)
+        {
+            parts += member.length > 0 ? 1 : 0;
+        }
+        int threads = pool == null ? 1 : Math.min(pool.getParallelism(), parts);
+        final long slice = parts == 0 ? 0 : (subDeadline - now) * threads / parts;
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            if (members[vehicle].length == 0)
+            {
+                continue;
+            }
+            final int sub = vehicle;
+            subPlanners[sub] = new CentralizedPlanner(subProblem(problem, sub, members[sub]), settings,
+                    seed + (sub + 1) * ParallelSearch.SEED_INCREMENT);
+            runs.add(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    long start = System.nanoTime();
+                    long end = subDeadline - start < slice ? subDeadline : start + slice;
+                    subPlanners[sub].selectInitialSolution(null, end);
+                    subPlanners[sub].search(end, maxIterations);
+                    return null;
+                }
+            });
+        }
+        if (pool != null)
+        {
+            pool.invokeAll(runs);
+        } else
+        {
+            for (Callable<Void> run : runs)
+            {
+                try
+                {
+                    run.call();
+                } catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        Solution merged = new Solution(problem);
+        iterations = 0;
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            if (subPlanners[vehicle] == null)
+            {
+                continue;
+            }
+            iterations += subPlanners[vehicle].getIterations();
+            for (int job : subPlanners[vehicle].snapshot().route(0))
+            {
+                merged.add(vehicle, Solution.job(members[vehicle][Solution.task(job)], Solution.action(job)));
+            }
+        }
+        repairBoundary(problem, merged, boundary, deadline);
+
+        planner.startFrom(merged, deadline);
+        iterations += planner.search(deadline, maxIterations);
+        return planner;
+    }
+
+    /**
+     * @return total number of iterations of the last search, over the sub-problems and the global search
+     */
+    int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Cluster the tasks, one cluster per vehicle.
+     *
+     * @param boundary set to true for the tasks whose second closest cluster is nearly as close as their own
+     *
+     * @return the vehicle of every task
+     */
+    private static int[] cluster(Problem problem, boolean[] boundary)
+    {
+        CostModel costModel = problem.costModel();
+        double[][] distance = problem.distances().distances();
+        int tasks = problem.taskCount();
+        int vehicles = problem.vehicleCount();
+        int cities = distance.length;
+
+        int[] medoid = new int[vehicles];
+        // weight of tasks every cluster may still take
+        double[] room = new double[vehicles];
+        double totalCapacity = 0;
+        double totalWeight = 0;
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            medoid[vehicle] = costModel.home(vehicle);
+            totalCapacity += problem.capacity(vehicle);
+        }
+        for (int task = 0; task < tasks; task++)
+        {
+            totalWeight += problem.weight(task);
+        }
+
+        int[] cluster = new int[tasks];
+        Integer[] order = new Integer[tasks];
+        final double[] regret = new double[tasks];
+        // number of pickups and deliveries of every cluster in every city
+        int[][] visits = new int[vehicles][cities];
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            // the tasks whose best cluster is clearly better than the others choose first
+            for (int task = 0; task < tasks; task++)
+            {
+                double best = Double.MAX_VALUE;
+                double second = Double.MAX_VALUE;
+                for (int vehicle = 0; vehicle < vehicles; vehicle++)
+                {
+                    double c = clusterCost(problem, distance, medoid[vehicle], task);
+                    if (c < best)
+                    {
+                        second = best;
+                        best = c;
+                    } else if (c < second)
+                    {
+                        second = c;
+                    }
+                }
+                regret[task] = second == Double.MAX_VALUE ? Double.MAX_VALUE : second - best;
+                boundary[task] = second <= BOUNDARY * best;
+                order[task] = task;
+            }
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return Double.compare(regret[b], regret[a]);
+                }
+            });
+
+            for (int vehicle = 0; vehicle < vehicles; vehicle++)
+            {
+                room[vehicle] = SLACK * totalWeight * problem.capacity(vehicle) / totalCapacity;
+                Arrays.fill(visits[vehicle], 0);
+            }
+            for (int task : order)
+            {
+                // the closest cluster with room, or the closest one the task fits in when they are all full
+                int closestWithRoom = -1;
+                int closest = -1;
+                double closestWithRoomCost = Double.MAX_VALUE;
+                double closestCost = Double.MAX_VALUE;
+                for (int vehicle = 0; vehicle < vehicles; vehicle++)
+                {
+                    if (problem.weight(task) > problem.capacity(vehicle))
+                    {
+                        continue;
+                    }
+                    double c = clusterCost(problem, distance, medoid[vehicle], task);
+                    if (closest == -1 || c < closestCost)
+                    {
+                        closest = vehicle;
+                        closestCost = c;
+                    }
+                    if (room[vehicle] >= problem.weight(task) && (closestWithRoom == -1 || c < closestWithRoomCost))
+                    {
+                        closestWithRoom = vehicle;
+                        closestWithRoomCost = c;
+                    }
+                }
+                int chosen = closestWithRoom == -1 ? closest : closestWithRoom;
+                if (chosen == -1)
+                {
+                    throw new IllegalArgumentException("Task do not fit any vehicle");
+                }
+                cluster[task] = chosen;
+                room[chosen] -= problem.weight(task);
+                visits[chosen][problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP))]++;
+                visits[chosen][problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY))]++;
+            }
+
+            // every medoid moves to the city closest to the cities of its tasks and to the home of its vehicle
+            for (int vehicle = 0; vehicle < vehicles; vehicle++)
+            {
+                double best = Double.MAX_VALUE;
+                for (int city = 0; city < cities; city++)
+                {
+                    double c = distance[costModel.home(vehicle)][city];
+                    for (int other = 0; other < cities; other++)
+                    {
+                        c += visits[vehicle][other] * distance[city][other];
+                    }
+                    if (c < best)
+                    {
+                        best = c;
+                        medoid[vehicle] = city;
+                    }
+                }
+            }
+        }
+        return cluster;
+    }
+
+    /**
+     * @return how far a task is from a cluster: distance from its medoid to the pickup and delivery cities
+     */
+    private static double clusterCost(Problem problem, double[][] distance, int medoid, int task)
+    {
+        return distance[medoid][problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP))]
+                + distance[medoid][problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY))];
+    }
+
+    /**
+     * @return the problem of one vehicle and some of the tasks, task i of it being members[i]
+     */
+    private Problem subProblem(Problem problem, int vehicle, int[] members)
+    {
+        CostModel costModel = problem.costModel();
+        int[] pickupCity = new int[members.length];
+        int[] deliveryCity = new int[members.length];
+        int[] weight = new int[members.length];
+        for (int i = 0; i < members.length; i++)
+        {
+            pickupCity[i] = problem.jobCity(Solution.job(members[i], CentralizedPlanner.PICKUP));
+            deliveryCity[i] = problem.jobCity(Solution.job(members[i], CentralizedPlanner.DELIVERY));
+            weight[i] = problem.weight(members[i]);
+        }
+        return new Problem(new int[]{problem.capacity(vehicle)}, new int[]{costModel.home(vehicle)},
+                new double[]{costModel.costPerKm(vehicle)}, new double[]{problem.speed(vehicle)}, pickupCity,
+                deliveryCity, weight, problem.distances(), settings.getCandidateNeighbours());
+    }
+
+    /**
+     * Relocate every boundary task to its best position over all the vehicles, as long as that lowers the objective,
+     * in a few sweeps. In every vehicle the task goes to its cheapest position.
+     */
+    private void repairBoundary(Problem problem, Solution solution, boolean[] boundary, long deadline)
+    {
+        CostModel costModel = problem.costModel();
+        Objective objective = Objectives.create(settings, problem);
+        double[] routeCost = new double[solution.vehicles()];
+        for (int vehicle = 0; vehicle < routeCost.length; vehicle++)
+        {
+            routeCost[vehicle] = costModel.routeCost(solution, vehicle);
+        }
+        double value = objective.update(routeCost);
+        MoveBuilder builder = new MoveBuilder(problem, solution);
+        int[] vehicleOf = new int[problem.taskCount()];
+        Move move = new Move();
+        Move best = new Move();
+        for (int sweep = 0; sweep < REPAIR_SWEEPS; sweep++)
+        {
+            for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+            {
+                for (int i = 0; i < solution.size(vehicle); i++)
+                {
+                    vehicleOf[Solution.task(solution.get(vehicle, i))] = vehicle;
+                }
+            }
+            boolean improved = false;
+            for (int task = 0; task < boundary.length && System.nanoTime() - deadline < 0; task++)
+            {
+                if (!boundary[task])
+                {
+                    continue;
+                }
+                best.clear();
+                double bestValue = Double.MAX_VALUE;
+                for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+                {
+                    move.clear();
+                    if (builder.relocateToBest(move, task, vehicleOf[task], vehicle))
+                    {
+                        double moveValue = objective.valueAfter(routeCost, move);
+                        if (moveValue < bestValue)
+                        {
+                            bestValue = moveValue;
+                            Move swap = best;
+                            best = move;
+                            move = swap;
+                        }
+                    }
+                }
+                // rounding errors must not make a task go back and forth
+                if (best.steps() > 0 && bestValue < value - 1e-9)
+                {
+                    best.apply(solution);
+                    vehicleOf[task] = best.to(0);
+                    for (int i = 0; i < best.routes(); i++)
+                    {
+                        routeCost[best.routeVehicle(i)] = costModel.routeCost(solution, best.routeVehicle(i));
+                    }
+                    value = objective.update(routeCost);
+                    improved = true;
+                }
+            }
+            if (!improved)
+            {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package template;
+
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.List;
+
+/**
+ * Shortest-path distances and paths between all the cities of a topology, indexed by city id. It is built once
+ * in CentralizedTemplate.setup so that the planner only does array lookups instead of calling City.distanceTo and
+ * City.pathTo, and it is reused by every plan() call on the same topology. It is immutable, so any number of
+ * planners may share it.
+ */
+final class DistanceCache
+{
+    private final City[] cities;
+    private final double[][] distance;
+    // path[i][j] is the shortest path from i to j without i, empty if i == j; null without a topology
+    private final City[][][] path;
+
+    DistanceCache(Topology topology)
+    {
+        int size = 0;
+        for (City city : topology)
+        {
+            size = Math.max(size, city.id + 1);
+        }
+        this.cities = new City[size];
+        this.distance = new double[size][size];
+        this.path = new City[size][size][];
+        for (City city : topology)
+        {
+            cities[city.id] = city;
+        }
+        for (City from : topology)
+        {
+            for (City to : topology)
+            {
+                distance[from.id][to.id] = from.distanceTo(to);
+                List<City> hops = from.pathTo(to);
+                path[from.id][to.id] = hops.toArray(new City[hops.size()]);
+            }
+        }
+    }
+
+    /**
+     * Distances of a complete graph given by its matrix, without a logist topology: city() and path() return null.
+     * Used to run the search outside the platform.
+     *
+     * @param distance distance between every pair of cities, it is not copied
+     */
+    DistanceCache(double[][] distance)
+    {
+        this.cities = new City[distance.length];
+        this.distance = distance;
+        this.path = null;
+    }
+
+    int size()
+    {
+        return cities.length;
+    }
+
+    City city(int id)
+    {
+        return cities[id];
+    }
+
+    double distance(int from, int to)
+    {
+        return distance[from][to];
+    }
+
+    /**
+     * @return the distance matrix itself, for hot loops; it must not be modified
+     */
+    double[][] distances()
+    {
+        return distance;
+    }
+
+    /**
+     * @return the cities of the shortest path from one city to another, without the first one; the array is shared
+     * and must not be modified
+     */
+    City[] path(int from, int to)
+    {
+        return path[from][to];
+    }
+}
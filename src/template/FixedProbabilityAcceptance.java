@@ -0,0 +1,43 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * The original acceptance rule of the planner: a better neighbour is taken with a fixed probability, a neighbour
+ * that is not better with the complementary probability.
+ */
+final class FixedProbabilityAcceptance implements AcceptanceStrategy
+{
+    static final String NAME = "fixed";
+
+    private final double probability;
+
+    FixedProbabilityAcceptance(double probability)
+    {
+        this.probability = probability;
+    }
+
+    @Override
+    public boolean admissible(Move move, double candidateCost, double bestCost)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean accept(double currentCost, double candidateCost, Random random)
+    {
+        double draw = random.nextDouble();
+        if (currentCost > candidateCost)
+        {
+            return draw < probability;
+        } else
+        {
+            return draw > probability;
+        }
+    }
+
+    @Override
+    public void update(Move move, boolean accepted, double currentCost)
+    {
+    }
+}
@@ -0,0 +1,81 @@
+package template;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with power of two buckets: bucket i counts the values whose highest
+ * set bit is bit i - 1, bucket 0 counts the zeros. Percentiles are therefore only known within a factor of 2, which
+ * is enough for durations, and recording a value is a single atomic increment.
+ */
+final class Histogram
+{
+    private static final int BUCKETS = 65;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+
+    void record(long value)
+    {
+        counts.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        sum.addAndGet(value);
+    }
+
+    void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+    }
+
+    long count()
+    {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    double mean()
+    {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * @param fraction fraction of the values, between 0 and 1
+     *
+     * @return upper bound of the bucket holding the given fraction of the values, 0 when empty
+     */
+    long percentile(double fraction)
+    {
+        long rank = (long) Math.ceil(fraction * count());
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0)
+            {
+                return i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a copy of the bucket counts
+     */
+    long[] buckets()
+    {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            buckets[i] = counts.get(i);
+        }
+        return buckets;
+    }
+}
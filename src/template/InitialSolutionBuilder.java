@@ -0,0 +1,20 @@
+package template;
+
+/**
+ * Builds the solution a search starts from. A builder only uses the problem it was created for and the solution it
+ * is given, so different builders can run at the same time on different solutions.
+ */
+interface InitialSolutionBuilder
+{
+    String name();
+
+    /**
+     * Fill an empty solution with all the tasks.
+     *
+     * @param solution empty solution to fill
+     * @param deadline System.nanoTime() value at which the builder has to give up
+     *
+     * @return false if some task fits no vehicle or the deadline was reached, the solution is then unusable
+     */
+    boolean build(Solution solution, long deadline);
+}
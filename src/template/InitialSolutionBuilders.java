@@ -0,0 +1,41 @@
+package template;
+
+/**
+ * Creates the initial solution builders from their names in the agent configuration.
+ */
+final class InitialSolutionBuilders
+{
+    private InitialSolutionBuilders()
+    {
+    }
+
+    static InitialSolutionBuilder create(String name, Problem problem)
+    {
+        switch (name)
+        {
+            case BiggestVehicleBuilder.NAME:
+                return new BiggestVehicleBuilder(problem);
+            case NearestVehicleBuilder.NAME:
+                return new NearestVehicleBuilder(problem);
+            case RegretInsertionBuilder.CHEAPEST_INSERTION:
+                return new RegretInsertionBuilder(problem, 1);
+            default:
+                // regret-k, k being the number of vehicles the regret is taken over
+                if (name.startsWith(RegretInsertionBuilder.REGRET))
+                {
+                    try
+                    {
+                        int k = Integer.parseInt(name.substring(RegretInsertionBuilder.REGRET.length()));
+                        if (k >= 2)
+                        {
+                            return new RegretInsertionBuilder(problem, k);
+                        }
+                    } catch (NumberFormatException e)
+                    {
+                        // reported below
+                    }
+                }
+                throw new IllegalArgumentException("Unknown initial solution builder: " + name);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package template;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Adaptive large neighbourhood search (ALNS): a step ruins a copy of the current solution by taking a number of
+ * tasks out of it, then recreates it by inserting them back. The tasks are removed at random, by relatedness (their
+ * pickup and delivery cities are close to those of a random seed task) or by cost (the tasks whose removal saves
+ * the most), and they are inserted back by cheapest, regret-2 or regret-3 insertion (see RegretInsertionBuilder).
+ * <p>
+ * The removal and the insertion of a step are drawn with probabilities proportional to adaptive weights: every
+ * SEGMENT steps, the weight of each operator moves towards the mean score it earned over the segment, the score of
+ * a step depending on what the planner did with its result (see reward()).
+ */
+final class LargeNeighbourhoodSearch
+{
+    static final String[] REMOVALS = {"random", "related", "worst"};
+    static final String[] INSERTIONS = {"cheapest", "regret-2", "regret-3"};
+    private static final int RANDOM_REMOVAL = 0;
+    private static final int RELATED_REMOVAL = 1;
+
+    // scores of a step whose solution was a new best, better than the current one, or only accepted
+    private static final double NEW_BEST = 33;
+    private static final double BETTER = 9;
+    private static final double ACCEPTED = 13;
+    // steps between two weight updates, and how far the weights move towards the scores of the segment
+    private static final int SEGMENT = 100;
+    private static final double REACTION = 0.1;
+    // the related and worst removals take the y^DETERMINISM-th best task, y uniform in [0, 1)
+    private static final double DETERMINISM = 3;
+    // upper bound of the tasks removed in a step, whatever the problem size
+    private static final int MAX_REMOVED = 50;
+
+    private final Problem problem;
+    private final CostModel costModel;
+    private final double[][] distance;
+    private final Solution candidate;
+    private final MoveBuilder builder;
+    private final RegretInsertionBuilder[] insertions;
+    private final int maxRemoved;
+
+    // tasks removed by the current step
+    private final int[] removed;
+    // vehicle and pickup and delivery index of every task in the candidate, valid right after the copy
+    private final int[] vehicleOf;
+    private final int[] pickupIndex;
+    private final int[] deliveryIndex;
+    // tasks ranked by the related and worst removals: the rank in the high half, the task in the low one
+    private final long[] ranking;
+
+    private final double[] removalWeight;
+    private final double[] removalScore;
+    private final int[] removalUses;
+    private final double[] insertionWeight;
+    private final double[] insertionScore;
+    private final int[] insertionUses;
+    private int removal;
+    private int insertion;
+    private int steps;
+
+    /**
+     * @param maxRemovalShare highest share of the tasks removed in a step
+     */
+    LargeNeighbourhoodSearch(Problem problem, double maxRemovalShare)
+    {
+        int tasks = problem.taskCount();
+        this.problem = problem;
+        this.costModel = problem.costModel();
+        this.distance = problem.distances().distances();
+        this.candidate = new Solution(problem);
+        this.builder = new MoveBuilder(problem, candidate);
+        this.insertions = new RegretInsertionBuilder[]{new RegretInsertionBuilder(problem, 1),
+                new RegretInsertionBuilder(problem, 2), new RegretInsertionBuilder(problem, 3)};
+        this.maxRemoved = Math.max(1, Math.min(MAX_REMOVED, (int) (maxRemovalShare * tasks)));
+        this.removed = new int[tasks];
+        this.vehicleOf = new int[tasks];
+        this.pickupIndex = new int[tasks];
+        this.deliveryIndex = new int[tasks];
+        this.ranking = new long[tasks];
+        this.removalWeight = new double[REMOVALS.length];
+        this.removalScore = new double[REMOVALS.length];
+        this.removalUses = new int[REMOVALS.length];
+        this.insertionWeight = new double[INSERTIONS.length];
+        this.insertionScore = new double[INSERTIONS.length];
+        this.insertionUses = new int[INSERTIONS.length];
+        Arrays.fill(removalWeight, 1);
+        Arrays.fill(insertionWeight, 1);
+    }
+
+    /**
+     * The solution built by the last step.
+     */
+    Solution candidate()
+    {
+        return candidate;
+    }
+
+    /**
+     * Ruin and recreate a copy of a solution into candidate().
+     *
+     * @param current  solution to start from, not modified
+     * @param random   random generator of the planner
+     * @param deadline System.nanoTime() value at which the insertion has to give up
+     *
+     * @return false if some task could not be inserted back
+     */
+    boolean step(Solution current, Random random, long deadline)
+    {
+        int tasks = problem.taskCount();
+        if (tasks == 0)
+        {
+            return false;
+        }
+        candidate.copyFrom(current);
+        locateTasks();
+        removal = roulette(removalWeight, random);
+        insertion = roulette(insertionWeight, random);
+        int count = Math.min(tasks, 1 + random.nextInt(maxRemoved));
+        if (removal == RANDOM_REMOVAL)
+        {
+            randomRemoval(count, random);
+        } else
+        {
+            rankRemoval(removal == RELATED_REMOVAL, count, random);
+        }
+        // indices shift while removing, so every task is looked up again in its route
+        for (int i = 0; i < count; i++)
+        {
+            int task = removed[i];
+            int vehicle = vehicleOf[task];
+            candidate.removeAt(vehicle, candidate.indexOf(vehicle, Solution.job(task, CentralizedPlanner.DELIVERY)));
+            candidate.removeAt(vehicle, candidate.indexOf(vehicle, Solution.job(task, CentralizedPlanner.PICKUP)));
+        }
+        return insertions[insertion].insert(builder, removed, count, deadline);
+    }
+
+    /**
+     * Score the operators of the last step from what the planner did with its candidate.
+     *
+     * @param newBest  the candidate is the best solution so far
+     * @param better   the candidate is cheaper than the solution it was built from
+     * @param accepted the candidate became the current solution
+     */
+    void reward(boolean newBest, boolean better, boolean accepted)
+    {
+        double score = newBest ? NEW_BEST : better ? BETTER : accepted ? ACCEPTED : 0;
+        removalScore[removal] += score;
+        removalUses[removal]++;
+        insertionScore[insertion] += score;
+        insertionUses[insertion]++;
+        if (++steps % SEGMENT == 0)
+        {
+            adapt(removalWeight, removalScore, removalUses);
+            adapt(insertionWeight, insertionScore, insertionUses);
+        }
+    }
+
+    private static void adapt(double[] weight, double[] score, int[] uses)
+    {
+        for (int i = 0; i < weight.length; i++)
+        {
+            if (uses[i] > 0)
+            {
+                weight[i] = (1 - REACTION) * weight[i] + REACTION * score[i] / uses[i];
+            }
+            score[i] = 0;
+            uses[i] = 0;
+        }
+    }
+
+    private static int roulette(double[] weight, Random random)
+    {
+        double total = 0;
+        for (double w : weight)
+        {
+            total += w;
+        }
+        double draw = random.nextDouble() * total;
+        int i = 0;
+        while (i < weight.length - 1 && draw >= weight[i])
+        {
+            draw -= weight[i];
+            i++;
+        }
+        return i;
+    }
+
+    private void locateTasks()
+    {
+        for (int vehicle = 0; vehicle < candidate.vehicles(); vehicle++)
+        {
+            for (int i = 0; i < candidate.size(vehicle); i++)
+            {
+                int job = candidate.get(vehicle, i);
+                int task = Solution.task(job);
+                vehicleOf[task] = vehicle;
+                if (Solution.action(job) == CentralizedPlanner.PICKUP)
+                {
+                    pickupIndex[task] = i;
+                } else
+                {
+                    deliveryIndex[task] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick count distinct tasks uniformly, by a partial shuffle of all the tasks.
+     */
+    private void randomRemoval(int count, Random random)
+    {
+        int tasks = problem.taskCount();
+        for (int task = 0; task < tasks; task++)
+        {
+            removed[task] = task;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int j = i + random.nextInt(tasks - i);
+            int task = removed[j];
+            removed[j] = removed[i];
+            removed[i] = task;
+        }
+    }
+
+    /**
+     * Rank all the tasks, by relatedness to a random seed task or by decreasing removal saving, then pick count of
+     * them favouring the first ranks.
+     */
+    private void rankRemoval(boolean related, int count, Random random)
+    {
+        int tasks = problem.taskCount();
+        int seed = random.nextInt(tasks);
+        for (int task = 0; task < tasks; task++)
+        {
+            int rank;
+            if (related)
+            {
+                int pickup = CentralizedPlanner.PICKUP;
+                int delivery = CentralizedPlanner.DELIVERY;
+                double relatedness = distance[cityOf(seed, pickup)][cityOf(task, pickup)]
+                        + distance[cityOf(seed, delivery)][cityOf(task, delivery)];
+                rank = Float.floatToIntBits((float) relatedness);
+            } else
+            {
+                double saving = -costModel.removalDelta(candidate, vehicleOf[task], pickupIndex[task],
+                        deliveryIndex[task]);
+                // the bits of non-negative floats sort like the floats, reversed so the biggest saving goes first
+                rank = Integer.MAX_VALUE - Float.floatToIntBits((float) Math.max(saving, 0));
+            }
+            ranking[task] = ((long) rank << 32) | task;
+        }
+        Arrays.sort(ranking, 0, tasks);
+
+        // ranking[i..] holds the tasks not picked yet, in rank order
+        for (int i = 0; i < count; i++)
+        {
+            int pick = i + (int) (Math.pow(random.nextDouble(), DETERMINISM) * (tasks - i));
+            long chosen = ranking[pick];
+            System.arraycopy(ranking, i, ranking, i + 1, pick - i);
+            ranking[i] = chosen;
+            removed[i] = (int) chosen;
+        }
+    }
+
+    private int cityOf(int task, int action)
+    {
+        return problem.jobCity(Solution.job(task, action));
+    }
+
+    /**
+     * @return the weights of the operators
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < REMOVALS.length; i++)
+        {
+            builder.append(REMOVALS[i]).append(" removal: weight ").append(removalWeight[i]).append('\n');
+        }
+        for (int i = 0; i < INSERTIONS.length; i++)
+        {
+            builder.append(INSERTIONS[i]).append(" insertion: weight ").append(insertionWeight[i]).append('\n');
+        }
+        return builder.toString();
+    }
+}
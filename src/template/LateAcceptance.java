@@ -0,0 +1,60 @@
+package template;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Late acceptance hill climbing: a neighbour is taken when it is not worse than the current solution, or not worse
+ * than the current solution of length iterations ago. The history starts filled with the first current cost, so the
+ * first iterations are not a random walk.
+ */
+final class LateAcceptance implements AcceptanceStrategy
+{
+    static final String NAME = "late-acceptance";
+
+    private final double[] history;
+    private long iteration;
+    private boolean started;
+
+    /**
+     * @param length number of past iterations remembered
+     */
+    LateAcceptance(int length)
+    {
+        if (length <= 0)
+        {
+            throw new IllegalArgumentException("late-acceptance-length must be positive: " + length);
+        }
+        this.history = new double[length];
+    }
+
+    @Override
+    public boolean admissible(Move move, double candidateCost, double bestCost)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean accept(double currentCost, double candidateCost, Random random)
+    {
+        start(currentCost);
+        return candidateCost <= currentCost || candidateCost <= history[(int) (iteration % history.length)];
+    }
+
+    @Override
+    public void update(Move move, boolean accepted, double currentCost)
+    {
+        start(currentCost);
+        history[(int) (iteration % history.length)] = currentCost;
+        iteration++;
+    }
+
+    private void start(double currentCost)
+    {
+        if (!started)
+        {
+            Arrays.fill(history, currentCost);
+            started = true;
+        }
+    }
+}
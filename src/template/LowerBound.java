@@ -0,0 +1,104 @@
+package template;
+
+/**
+ * Quick lower bounds of the objectives, from the distance matrix only, so that the search knows how far from optimal
+ * its best solution can at most be.
+ */
+final class LowerBound
+{
+    private LowerBound()
+    {
+    }
+
+    /**
+     * The routes, with the start cities of all the vehicles merged into one node, connect that node to every pickup
+     * and delivery city, so their total length is at least the length of a minimum spanning tree of those cities and
+     * the node, which is built with Prim's algorithm. The cheapest cost per kilometre turns it into a cost.
+     *
+     * @return lower bound of the total cost of any solution
+     */
+    static double totalCost(Problem problem)
+    {
+        if (problem.taskCount() == 0 || problem.vehicleCount() == 0)
+        {
+            return 0;
+        }
+        CostModel costModel = problem.costModel();
+        double[][] distance = problem.distances().distances();
+        int cities = distance.length;
+        boolean[] required = new boolean[cities];
+        for (int job = 0; job < 2 * problem.taskCount(); job++)
+        {
+            required[problem.jobCity(job)] = true;
+        }
+
+        // distance of every required city to the tree, which starts as the merged start node
+        double[] toTree = new double[cities];
+        double cheapest = Double.MAX_VALUE;
+        for (int city = 0; city < cities; city++)
+        {
+            toTree[city] = Double.MAX_VALUE;
+        }
+        for (int vehicle = 0; vehicle < problem.vehicleCount(); vehicle++)
+        {
+            int home = costModel.home(vehicle);
+            for (int city = 0; city < cities; city++)
+            {
+                toTree[city] = Math.min(toTree[city], distance[home][city]);
+            }
+            cheapest = Math.min(cheapest, costModel.costPerKm(vehicle));
+        }
+        double length = 0;
+        while (true)
+        {
+            int next = -1;
+            for (int city = 0; city < cities; city++)
+            {
+                if (required[city] && (next == -1 || toTree[city] < toTree[next]))
+                {
+                    next = city;
+                }
+            }
+            if (next == -1)
+            {
+                return length * cheapest;
+            }
+            length += toTree[next];
+            required[next] = false;
+            for (int city = 0; city < cities; city++)
+            {
+                toTree[city] = Math.min(toTree[city], distance[next][city]);
+            }
+        }
+    }
+
+    /**
+     * Some vehicle has to go to the pickup city of every task and on to its delivery city.
+     *
+     * @return lower bound of the makespan of any solution, in hours
+     */
+    static double makespan(Problem problem)
+    {
+        if (problem.vehicleCount() == 0)
+        {
+            return 0;
+        }
+        CostModel costModel = problem.costModel();
+        double[][] distance = problem.distances().distances();
+        double bound = 0;
+        for (int task = 0; task < problem.taskCount(); task++)
+        {
+            int pickup = problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP));
+            int delivery = problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY));
+            double fastest = Double.MAX_VALUE;
+            for (int vehicle = 0; vehicle < problem.vehicleCount(); vehicle++)
+            {
+                double hours = (distance[costModel.home(vehicle)][pickup] + distance[pickup][delivery])
+                        / problem.speed(vehicle);
+                fastest = Math.min(fastest, hours);
+            }
+            bound = Math.max(bound, fastest);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,114 @@
+package template;
+
+/**
+ * The time at which the last vehicle completes its route, in hours: the length of a route divided by the speed of
+ * its vehicle. Routes carry their cost, so the time of a route is its cost over cost per kilometre times speed.
+ * <p>
+ * The longest routes of the current solution are kept in order. A move changes at most 2 * Move.MAX_STEPS routes,
+ * so one of the 2 * Move.MAX_STEPS + 1 longest routes is not changed by it, and the first such route gives the
+ * longest unchanged time without looking at the other routes.
+ */
+final class MakespanObjective implements Objective
+{
+    static final String NAME = "makespan";
+
+    // hours per unit of cost of every vehicle
+    private final double[] hoursPerCost;
+    // the longest routes of the current solution, longest first; only longestCount are valid
+    private final int[] longest;
+    private int longestCount;
+    private final double lowerBound;
+
+    MakespanObjective(Problem problem)
+    {
+        int vehicles = problem.vehicleCount();
+        this.hoursPerCost = new double[vehicles];
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            double costPerKm = problem.costModel().costPerKm(vehicle);
+            double speed = problem.speed(vehicle);
+            if (costPerKm <= 0 || speed <= 0)
+            {
+                throw new IllegalArgumentException("The makespan needs a positive cost per km and speed, vehicle "
+                        + vehicle + " has " + costPerKm + " and " + speed);
+            }
+            hoursPerCost[vehicle] = 1 / (costPerKm * speed);
+        }
+        this.longest = new int[Math.min(vehicles, 2 * Move.MAX_STEPS + 1)];
+        this.lowerBound = LowerBound.makespan(problem);
+    }
+
+    /**
+     * @return completion time of a route, in hours
+     */
+    private double time(double[] routeCost, int vehicle)
+    {
+        return routeCost[vehicle] * hoursPerCost[vehicle];
+    }
+
+    @Override
+    public double value(double[] routeCost)
+    {
+        double max = 0;
+        for (int vehicle = 0; vehicle < routeCost.length; vehicle++)
+        {
+            max = Math.max(max, time(routeCost, vehicle));
+        }
+        return max;
+    }
+
+    @Override
+    public double update(double[] routeCost)
+    {
+        // insertion sort of every route into the few longest ones
+        longestCount = 0;
+        for (int vehicle = 0; vehicle < routeCost.length; vehicle++)
+        {
+            double time = time(routeCost, vehicle);
+            int i = longestCount;
+            if (i < longest.length)
+            {
+                longestCount++;
+            } else if (time(routeCost, longest[i - 1]) < time)
+            {
+                // the shortest of them is dropped
+                i--;
+            } else
+            {
+                continue;
+            }
+            while (i > 0 && time(routeCost, longest[i - 1]) < time)
+            {
+                longest[i] = longest[i - 1];
+                i--;
+            }
+            longest[i] = vehicle;
+        }
+        return longestCount == 0 ? 0 : time(routeCost, longest[0]);
+    }
+
+    @Override
+    public double valueAfter(double[] routeCost, Move move)
+    {
+        double max = 0;
+        for (int i = 0; i < move.routes(); i++)
+        {
+            int vehicle = move.routeVehicle(i);
+            max = Math.max(max, (routeCost[vehicle] + move.routeDelta(i)) * hoursPerCost[vehicle]);
+        }
+        for (int i = 0; i < longestCount; i++)
+        {
+            if (!move.changes(longest[i]))
+            {
+                return Math.max(max, time(routeCost, longest[i]));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public double lowerBound()
+    {
+        return lowerBound;
+    }
+}
@@ -0,0 +1,225 @@
+package template;
+
+/**
+ * A neighbour of the current solution, described as a short sequence of steps instead of a copy of all the routes.
+ * A move is applied in place on a {@link Solution} and can be undone, so evaluating a neighbour does not allocate.
+ * Move objects are reused from one iteration to the next.
+ */
+final class Move
+{
+    static final int MAX_STEPS = 2;
+
+    // take both jobs of a task out of a vehicle and put them in another (or the same) one
+    static final int RELOCATE = 0;
+    // reverse a segment of a route
+    static final int REVERSE = 1;
+    // move a segment of a route to another index of the same route
+    static final int SEGMENT = 2;
+
+    private int steps;
+    // cost change of the whole move, relative to the solution it was generated on
+    private double delta;
+    private final int[] kind = new int[MAX_STEPS];
+    private final int[] task = new int[MAX_STEPS];
+    private final int[] from = new int[MAX_STEPS];
+    private final int[] to = new int[MAX_STEPS];
+    // RELOCATE: indices of pickup and delivery in the destination route once the step is applied
+    // REVERSE: first and last index of the segment
+    // SEGMENT: start and length of the segment, its index once moved is in target
+    private final int[] first = new int[MAX_STEPS];
+    private final int[] second = new int[MAX_STEPS];
+    private final int[] target = new int[MAX_STEPS];
+    // RELOCATE: indices in the source route before the step, filled by apply() for undo()
+    private final int[] oldFirst = new int[MAX_STEPS];
+    private final int[] oldSecond = new int[MAX_STEPS];
+
+    // cost change of every route the move touches, for the objectives that are not the total cost
+    private int routes;
+    private final int[] routeVehicle = new int[2 * MAX_STEPS];
+    private final double[] routeDelta = new double[2 * MAX_STEPS];
+
+    void clear()
+    {
+        steps = 0;
+        delta = 0;
+        routes = 0;
+    }
+
+    int steps()
+    {
+        return steps;
+    }
+
+    double delta()
+    {
+        return delta;
+    }
+
+    int from(int step)
+    {
+        return from[step];
+    }
+
+    int to(int step)
+    {
+        return to[step];
+    }
+
+    /**
+     * @return number of different routes the move changes
+     */
+    int routes()
+    {
+        return routes;
+    }
+
+    /**
+     * @return vehicle of the i-th route the move changes
+     */
+    int routeVehicle(int i)
+    {
+        return routeVehicle[i];
+    }
+
+    /**
+     * @return cost change of the i-th route the move changes, over all the steps
+     */
+    double routeDelta(int i)
+    {
+        return routeDelta[i];
+    }
+
+    /**
+     * @return true if the move changes the route of a vehicle
+     */
+    boolean changes(int vehicle)
+    {
+        for (int i = 0; i < routes; i++)
+        {
+            if (routeVehicle[i] == vehicle)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the task a RELOCATE step moves, -1 for the other kinds
+     */
+    int task(int step)
+    {
+        return kind[step] == RELOCATE ? task[step] : -1;
+    }
+
+    /**
+     * Append a relocation step: take both jobs of the task out of vehicle from and put them in vehicle to, so that
+     * the pickup ends at index pickupAt and the delivery at index deliveryAt (pickupAt < deliveryAt).
+     *
+     * @param removal   cost change of route from, once the previous steps are applied
+     * @param insertion cost change of route to, once the task is out of route from
+     */
+    void addRelocation(int task, int from, int to, int pickupAt, int deliveryAt, double removal, double insertion)
+    {
+        add(RELOCATE, task, from, to, pickupAt, deliveryAt, 0, removal + insertion);
+        addRouteDelta(from, removal);
+        addRouteDelta(to, insertion);
+    }
+
+    /**
+     * Append the reversal of the jobs from index first to index last included of a route.
+     */
+    void addReversal(int vehicle, int first, int last, double delta)
+    {
+        add(REVERSE, -1, vehicle, vehicle, first, last, 0, delta);
+        addRouteDelta(vehicle, delta);
+    }
+
+    /**
+     * Append Solution.moveSegment(vehicle, start, length, destination).
+     */
+    void addSegment(int vehicle, int start, int length, int destination, double delta)
+    {
+        add(SEGMENT, -1, vehicle, vehicle, start, length, destination, delta);
+        addRouteDelta(vehicle, delta);
+    }
+
+    private void addRouteDelta(int vehicle, double delta)
+    {
+        for (int i = 0; i < routes; i++)
+        {
+            if (routeVehicle[i] == vehicle)
+            {
+                routeDelta[i] += delta;
+                return;
+            }
+        }
+        routeVehicle[routes] = vehicle;
+        routeDelta[routes++] = delta;
+    }
+
+    private void add(int kind, int task, int from, int to, int first, int second, int target, double delta)
+    {
+        this.kind[steps] = kind;
+        this.task[steps] = task;
+        this.from[steps] = from;
+        this.to[steps] = to;
+        this.first[steps] = first;
+        this.second[steps] = second;
+        this.target[steps] = target;
+        this.delta += delta;
+        steps++;
+    }
+
+    void apply(Solution solution)
+    {
+        for (int k = 0; k < steps; k++)
+        {
+            switch (kind[k])
+            {
+                case RELOCATE:
+                    int pickup = Solution.job(task[k], CentralizedPlanner.PICKUP);
+                    int delivery = Solution.job(task[k], CentralizedPlanner.DELIVERY);
+                    oldFirst[k] = solution.indexOf(from[k], pickup);
+                    oldSecond[k] = solution.indexOf(from[k], delivery);
+                    solution.removeAt(from[k], oldSecond[k]);
+                    solution.removeAt(from[k], oldFirst[k]);
+                    solution.insert(to[k], first[k], pickup);
+                    solution.insert(to[k], second[k], delivery);
+                    break;
+                case REVERSE:
+                    solution.reverse(from[k], first[k], second[k]);
+                    break;
+                default:
+                    solution.moveSegment(from[k], first[k], second[k], target[k]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Revert the last apply() on the same solution.
+     */
+    void undo(Solution solution)
+    {
+        for (int k = steps - 1; k >= 0; k--)
+        {
+            switch (kind[k])
+            {
+                case RELOCATE:
+                    int pickup = solution.get(to[k], first[k]);
+                    int delivery = solution.removeAt(to[k], second[k]);
+                    solution.removeAt(to[k], first[k]);
+                    solution.insert(from[k], oldFirst[k], pickup);
+                    solution.insert(from[k], oldSecond[k], delivery);
+                    break;
+                case REVERSE:
+                    solution.reverse(from[k], first[k], second[k]);
+                    break;
+                default:
+                    solution.moveSegment(from[k], target[k], second[k], first[k]);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package template;
+
+import java.util.Arrays;
+
+/**
+ * Builds moves on one copy of the current solution: it checks their feasibility and prices them with the delta
+ * costs of {@link CostModel}. Each worker of the planner owns a builder, so building a move only touches the
+ * builder's own state and the Move it writes to. The solution is modified while a move is built and restored
+ * before returning.
+ */
+final class MoveBuilder
+{
+    private final Problem problem;
+    private final CostModel costModel;
+    private final Solution solution;
+    private final NearestCities nearestCities;
+    // occurrences of the cities in the routes, for the candidate lists
+    private final RouteCities routeCities;
+
+    // result of the last bestInsertion call
+    private int insertPickupAt;
+    private int insertDeliveryAt;
+    private double insertDelta;
+    // gaps of the route next to a city near the pickup and the delivery, in increasing order, see
+    // candidateInsertion, and the gaps marked with the current stamp while they are collected
+    private final int[] pickupGaps;
+    private final int[] deliveryGaps;
+    private final int[] gapMarks;
+    private int gapStamp;
+
+    // tasks marked with the current stamp, so precedence checks never have to clear the array
+    private final int[] marks;
+    private int stamp;
+    private int walkLoad;
+
+    MoveBuilder(Problem problem, Solution solution)
+    {
+        this.problem = problem;
+        this.costModel = problem.costModel();
+        this.solution = solution;
+        this.nearestCities = problem.nearestCities();
+        this.marks = new int[problem.taskCount()];
+        this.routeCities = nearestCities == null ? null : new RouteCities(problem, solution);
+        this.pickupGaps = nearestCities == null ? null : new int[2 * problem.taskCount() + 1];
+        this.deliveryGaps = nearestCities == null ? null : new int[2 * problem.taskCount() + 1];
+        this.gapMarks = nearestCities == null ? null : new int[2 * problem.taskCount() + 1];
+    }
+
+    Solution solution()
+    {
+        return solution;
+    }
+
+    /**
+     * Append to the move the relocation of a task to its cheapest feasible position in vehicle to, the previous
+     * steps of the move being applied.
+     *
+     * @return false if the task does not fit anywhere in vehicle to
+     */
+    boolean relocateToBest(Move move, int task, int from, int to)
+    {
+        int pickup = Solution.job(task, CentralizedPlanner.PICKUP);
+        int delivery = Solution.job(task, CentralizedPlanner.DELIVERY);
+
+        move.apply(solution);
+        int pickupIndex = solution.indexOf(from, pickup);
+        int deliveryIndex = solution.indexOf(from, delivery);
+        double removal = costModel.removalDelta(solution, from, pickupIndex, deliveryIndex);
+        solution.removeAt(from, deliveryIndex);
+        solution.removeAt(from, pickupIndex);
+
+        boolean found = bestInsertion(to, task);
+
+        solution.insert(from, pickupIndex, pickup);
+        solution.insert(from, deliveryIndex, delivery);
+        move.undo(solution);
+
+        if (found)
+        {
+            move.addRelocation(task, from, to, insertPickupAt, insertDeliveryAt, removal, insertDelta);
+        }
+        return found;
+    }
+
+    /**
+     * @return fingerprint of the solution the move leads to, see Solution.fingerprint()
+     */
+    long fingerprint(Move move)
+    {
+        move.apply(solution);
+        long fingerprint = solution.fingerprint();
+        move.undo(solution);
+        return fingerprint;
+    }
+
+    /**
+     * Cheapest feasible insertion of a task in a route that does not contain it, see bestInsertion. The solution
+     * of the builder is read as it is, no move is applied.
+     *
+     * @return cost change of the insertion, Double.MAX_VALUE if the task fits nowhere in the route; the positions
+     * are then given by insertPickupAt() and insertDeliveryAt()
+     */
+    double cheapestInsertion(int vehicle, int task)
+    {
+        bestInsertion(vehicle, task);
+        return insertDelta;
+    }
+
+    int insertPickupAt()
+    {
+        return insertPickupAt;
+    }
+
+    int insertDeliveryAt()
+    {
+        return insertDeliveryAt;
+    }
+
+    /**
+     * Cheapest feasible insertion of a task in a route that does not contain it. With candidate lists the jobs are
+     * only inserted next to one of the nearest cities of theirs, and every position is only tried when none of those
+     * fits.
+     *
+     * @return false if the task does not fit anywhere, otherwise the positions are in insertPickupAt and
+     * insertDeliveryAt and the cost change in insertDelta
+     */
+    private boolean bestInsertion(int vehicle, int task)
+    {
+        return nearestCities != null && candidateInsertion(vehicle, task) || exactInsertion(vehicle, task);
+    }
+
+    /**
+     * Like exactInsertion, but the pickup is only tried in the gaps of the route next to a city near the pickup
+     * city, and the delivery next to a city near the delivery city. Gap g lies between the jobs g - 1 and g, a
+     * delivery in gap g of the route without the task is at index g + 1 once the pickup is inserted before it.
+     */
+    private boolean candidateInsertion(int vehicle, int task)
+    {
+        int capacity = problem.capacity(vehicle);
+        int taskWeight = problem.weight(task);
+        int pickupCity = problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP));
+        int deliveryCity = problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY));
+        int pickups = candidateGaps(vehicle, pickupCity, pickupGaps);
+        int gaps = candidateGaps(vehicle, deliveryCity, deliveryGaps);
+        boolean deliveryNearPickup = nearestCities.isNear(deliveryCity, pickupCity);
+
+        double minimumCost = Double.MAX_VALUE;
+        int firstGap = 0;
+        for (int k = 0; k < pickups; k++)
+        {
+            int p = pickupGaps[k];
+            if (solution.loadBefore(vehicle, p) + taskWeight > capacity)
+            {
+                continue;
+            }
+            // the delivery right after the pickup
+            if (deliveryNearPickup || nearestCities.isNear(deliveryCity, costModel.cityAt(solution, vehicle, p)))
+            {
+                double tempCost = costModel.insertionDelta(solution, vehicle, task, p, p + 1);
+                if (tempCost < minimumCost)
+                {
+                    minimumCost = tempCost;
+                    insertPickupAt = p;
+                    insertDeliveryAt = p + 1;
+                }
+            }
+            boolean roomToEnd = solution.maxLoadFrom(vehicle, p) + taskWeight <= capacity;
+            while (firstGap < gaps && deliveryGaps[firstGap] <= p)
+            {
+                firstGap++;
+            }
+            // the jobs p..carried-1 are known to leave room for the task
+            int carried = p;
+            for (int i = firstGap; i < gaps; i++)
+            {
+                int g = deliveryGaps[i];
+                // the jobs p..g-1 are carried with the task
+                while (!roomToEnd && carried < g && solution.loadAfter(vehicle, carried) + taskWeight <= capacity)
+                {
+                    carried++;
+                }
+                if (!roomToEnd && carried < g)
+                {
+                    break;
+                }
+                double tempCost = costModel.insertionDelta(solution, vehicle, task, p, g + 1);
+                if (tempCost < minimumCost)
+                {
+                    minimumCost = tempCost;
+                    insertPickupAt = p;
+                    insertDeliveryAt = g + 1;
+                }
+            }
+        }
+        insertDelta = minimumCost;
+        return minimumCost != Double.MAX_VALUE;
+    }
+
+    /**
+     * Collect the gaps of a route next to city or one of its nearest cities, from the occurrences of those cities
+     * in the route: the gaps on both sides of every occurrence, the first gap when the vehicle starts near city, and
+     * the last gap, since the end of a route is near every city.
+     *
+     * @return number of gaps, written in increasing order to gaps
+     */
+    private int candidateGaps(int vehicle, int city, int[] gaps)
+    {
+        int size = solution.size(vehicle);
+        gapStamp++;
+        int count = 0;
+        if (nearestCities.isNear(city, costModel.home(vehicle)))
+        {
+            count = addGap(gaps, count, 0);
+        }
+        count = addGap(gaps, count, size);
+        int[] nearest = nearestCities.nearest(city);
+        for (int n = -1; n < nearest.length; n++)
+        {
+            for (int i = routeCities.first(vehicle, n == -1 ? city : nearest[n]); i != -1;
+                 i = routeCities.next(vehicle, i))
+            {
+                count = addGap(gaps, count, i);
+                count = addGap(gaps, count, i + 1);
+            }
+        }
+        Arrays.sort(gaps, 0, count);
+        return count;
+    }
+
+    private int addGap(int[] gaps, int count, int gap)
+    {
+        if (gapMarks[gap] == gapStamp)
+        {
+            return count;
+        }
+        gapMarks[gap] = gapStamp;
+        gaps[count] = gap;
+        return count + 1;
+    }
+
+    /**
+     * Try the task at every position of a route that does not contain it. The pickup needs free capacity at least
+     * equal to the task weight, and the load between pickup and delivery may not exceed the capacity.
+     * Every position pair is priced in O(1) with CostModel.insertionDelta, and its capacity is checked in O(1) with
+     * the load profile of the route: when the highest load after the pickup leaves room for the task, every
+     * delivery position is feasible, otherwise the deliveries stop at the first job the task would overload.
+     *
+     * @param vehicle vehicle whose route is searched
+     * @param task    task to insert
+     *
+     * @return false if the task does not fit anywhere, otherwise the positions are in insertPickupAt and
+     * insertDeliveryAt and the cost change in insertDelta
+     */
+    private boolean exactInsertion(int vehicle, int task)
+    {
+        int size = solution.size(vehicle);
+        int capacity = problem.capacity(vehicle);
+        int taskWeight = problem.weight(task);
+
+        double minimumCost = Double.MAX_VALUE;
+        for (int p = 0; p <= size; p++)
+        {
+            if (solution.loadBefore(vehicle, p) + taskWeight > capacity)
+            {
+                continue;
+            }
+            boolean roomToEnd = solution.maxLoadFrom(vehicle, p) + taskWeight <= capacity;
+            for (int d = p + 1; d <= size + 1; d++)
+            {
+                // the job right before the delivery is carried with the task
+                if (!roomToEnd && d > p + 1 && solution.loadAfter(vehicle, d - 2) + taskWeight > capacity)
+                {
+                    break;
+                }
+                double tempCost = costModel.insertionDelta(solution, vehicle, task, p, d);
+                if (tempCost < minimumCost)
+                {
+                    minimumCost = tempCost;
+                    insertPickupAt = p;
+                    insertDeliveryAt = d;
+                }
+            }
+        }
+        insertDelta = minimumCost;
+        return minimumCost != Double.MAX_VALUE;
+    }
+
+    /**
+     * Append to the move the reversal of the jobs first..last of a route. It is infeasible when both jobs of a task
+     * are in the segment, or when the reversed order overloads the vehicle.
+     */
+    boolean reverse(Move move, int vehicle, int first, int last)
+    {
+        move.apply(solution);
+        int[] route = solution.route(vehicle);
+        boolean feasible = first < last && last < solution.size(vehicle);
+        stamp++;
+        walkLoad = solution.loadBefore(vehicle, first);
+        for (int k = last; k >= first && feasible; k--)
+        {
+            int job = route[k];
+            int task = Solution.task(job);
+            if (Solution.action(job) == CentralizedPlanner.DELIVERY)
+            {
+                marks[task] = stamp;
+            } else if (marks[task] == stamp)
+            {
+                // its delivery comes first once reversed
+                feasible = false;
+            }
+            walkLoad += problem.jobLoad(job);
+            feasible &= walkLoad <= problem.capacity(vehicle);
+        }
+        double delta = feasible ? costModel.reversalDelta(solution, vehicle, first, last) : 0;
+        move.undo(solution);
+
+        if (feasible)
+        {
+            move.addReversal(vehicle, first, last, delta);
+        }
+        return feasible;
+    }
+
+    /**
+     * Append to the move Solution.moveSegment(vehicle, start, length, destination). It is infeasible when a delivery
+     * ends up before its pickup, or when the new order overloads the vehicle.
+     */
+    boolean moveSegment(Move move, int vehicle, int start, int length, int destination)
+    {
+        move.apply(solution);
+        int[] route = solution.route(vehicle);
+        boolean feasible = destination != start && start + length <= solution.size(vehicle)
+                && destination + length <= solution.size(vehicle);
+        double delta = 0;
+        if (feasible)
+        {
+            // the window of the route whose order changes
+            int low = Math.min(start, destination);
+            int high = Math.max(start, destination) + length;
+            int otherFrom = destination < start ? destination : start + length;
+            int otherTo = destination < start ? start : destination + length;
+
+            // stamp - 1 marks the pickups of the window not visited yet, stamp the visited ones
+            stamp += 2;
+            for (int k = low; k < high; k++)
+            {
+                if (Solution.action(route[k]) == CentralizedPlanner.PICKUP)
+                {
+                    marks[Solution.task(route[k])] = stamp - 1;
+                }
+            }
+            walkLoad = solution.loadBefore(vehicle, low);
+            if (destination < start)
+            {
+                feasible = walk(vehicle, start, start + length) && walk(vehicle, otherFrom, otherTo);
+            } else
+            {
+                feasible = walk(vehicle, otherFrom, otherTo) && walk(vehicle, start, start + length);
+            }
+            if (feasible)
+            {
+                delta = costModel.segmentDelta(solution, vehicle, start, length, destination);
+            }
+        }
+        move.undo(solution);
+
+        if (feasible)
+        {
+            move.addSegment(vehicle, start, length, destination, delta);
+        }
+        return feasible;
+    }
+
+    /**
+     * Visit the jobs from..to-1 of a route in the order of a new route, checking precedence and capacity.
+     */
+    private boolean walk(int vehicle, int from, int to)
+    {
+        int[] route = solution.route(vehicle);
+        for (int k = from; k < to; k++)
+        {
+            int job = route[k];
+            int task = Solution.task(job);
+            if (Solution.action(job) == CentralizedPlanner.PICKUP)
+            {
+                marks[task] = stamp;
+            } else if (marks[task] == stamp - 1)
+            {
+                // its pickup is further in the window
+                return false;
+            }
+            walkLoad += problem.jobLoad(job);
+            if (walkLoad > problem.capacity(vehicle))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package template;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The k nearest cities of every city, closest first. Insertion only tries the positions next to an occurrence of the
+ * inserted city or of one of its nearest cities (see MoveBuilder), so that it costs O(k) lists of occurrences instead
+ * of the whole route.
+ */
+final class NearestCities
+{
+    private final int[][] nearest;
+
+    /**
+     * @param distances distances between the cities
+     * @param k         number of nearest cities kept for every city, itself excluded
+     */
+    NearestCities(DistanceCache distances, int k)
+    {
+        int size = distances.size();
+        this.nearest = new int[size][Math.min(k, size - 1)];
+        Integer[] order = new Integer[size];
+        for (int city = 0; city < size; city++)
+        {
+            final double[] distance = distances.distances()[city];
+            for (int other = 0; other < size; other++)
+            {
+                order[other] = other;
+            }
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return Double.compare(distance[a], distance[b]);
+                }
+            });
+            int kept = 0;
+            for (int i = 0; i < size && kept < nearest[city].length; i++)
+            {
+                if (order[i] != city)
+                {
+                    nearest[city][kept++] = order[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the nearest cities of city, itself excluded; the array must not be modified
+     */
+    int[] nearest(int city)
+    {
+        return nearest[city];
+    }
+
+    /**
+     * @param city  city being inserted
+     * @param other city of a job of the route, or CostModel.END
+     *
+     * @return true if other is city or one of its nearest cities; the end of a route is near every city, since
+     * closing a route costs nothing
+     */
+    boolean isNear(int city, int other)
+    {
+        if (other == CostModel.END || other == city)
+        {
+            return true;
+        }
+        for (int near : nearest[city])
+        {
+            if (near == other)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package template;
+
+/**
+ * Greedy construction: the tasks are taken in id order and each one is appended, pickup then delivery, to the
+ * vehicle for which this is cheapest, that is the vehicle whose route ends nearest to the pickup. It is linear in
+ * the number of tasks and vehicles, so it never gives up on the deadline.
+ */
+final class NearestVehicleBuilder implements InitialSolutionBuilder
+{
+    static final String NAME = "nearest-vehicle";
+
+    private final Problem problem;
+
+    NearestVehicleBuilder(Problem problem)
+    {
+        this.problem = problem;
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public boolean build(Solution solution, long deadline)
+    {
+        CostModel costModel = problem.costModel();
+        solution.clear();
+        for (int task = 0; task < problem.taskCount(); task++)
+        {
+            int bestVehicle = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int vehicle = 0; vehicle < problem.vehicleCount(); vehicle++)
+            {
+                // routes are empty at their end, so the task fits if the vehicle can carry it alone
+                if (problem.weight(task) > problem.capacity(vehicle))
+                {
+                    continue;
+                }
+                int size = solution.size(vehicle);
+                double cost = costModel.insertionDelta(solution, vehicle, task, size, size + 1);
+                if (cost < bestCost)
+                {
+                    bestCost = cost;
+                    bestVehicle = vehicle;
+                }
+            }
+            if (bestVehicle == -1)
+            {
+                return false;
+            }
+            solution.add(bestVehicle, Solution.job(task, CentralizedPlanner.PICKUP));
+            solution.add(bestVehicle, Solution.job(task, CentralizedPlanner.DELIVERY));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * A neighbourhood operator of the local search. At every iteration prepare() picks, on the planner thread, the
+ * candidates the operator proposes; build() then turns each of them into a Move. build() may run on several worker
+ * threads at once for different candidates, so it may only read what prepare() wrote.
+ */
+interface NeighbourOperator
+{
+    String name();
+
+    /**
+     * @return upper bound of the number of candidates prepare() proposes
+     */
+    int maxCandidates();
+
+    /**
+     * Choose the candidates of the next iteration. This is the only place an operator may use randomness.
+     *
+     * @param solution current solution, not to be modified
+     * @param random   random generator of the planner
+     *
+     * @return number of candidates proposed
+     */
+    int prepare(Solution solution, Random random);
+
+    /**
+     * Build a candidate.
+     *
+     * @param candidate index of the candidate, lower than the value returned by prepare()
+     * @param builder   builder of the calling worker, its solution is a copy of the current one
+     * @param move      cleared move to write the candidate to
+     *
+     * @return false if the candidate is infeasible
+     */
+    boolean build(int candidate, MoveBuilder builder, Move move);
+}
@@ -0,0 +1,67 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Creates the neighbourhood operators from their names in the agent configuration.
+ */
+final class NeighbourOperators
+{
+    private NeighbourOperators()
+    {
+    }
+
+    static NeighbourOperator create(String name, Problem problem)
+    {
+        switch (name)
+        {
+            case ChangingVehicleOperator.NAME:
+                return new ChangingVehicleOperator(problem);
+            case RelocateOperator.NAME:
+                return new RelocateOperator(problem);
+            case SwapOperator.NAME:
+                return new SwapOperator(problem);
+            case TwoOptOperator.NAME:
+                return new TwoOptOperator(problem);
+            case OrOptOperator.NAME:
+                return new OrOptOperator(problem);
+            default:
+                throw new IllegalArgumentException("Unknown neighbourhood operator: " + name);
+        }
+    }
+
+    /**
+     * Pick a vehicle with a probability proportional to the length of its route, so that every job of the solution
+     * is equally likely to be picked afterwards.
+     *
+     * @return the vehicle, or -1 when all the routes are empty
+     */
+    static int randomVehicle(Solution solution, Random random)
+    {
+        int jobs = 0;
+        for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+        {
+            jobs += solution.size(vehicle);
+        }
+        if (jobs == 0)
+        {
+            return -1;
+        }
+        int position = random.nextInt(jobs);
+        int vehicle = 0;
+        while (position >= solution.size(vehicle))
+        {
+            position -= solution.size(vehicle);
+            vehicle++;
+        }
+        return vehicle;
+    }
+
+    /**
+     * @return a random task of a non-empty route
+     */
+    static int randomTask(Solution solution, int vehicle, Random random)
+    {
+        return Solution.task(solution.get(vehicle, random.nextInt(solution.size(vehicle))));
+    }
+}
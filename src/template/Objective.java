@@ -0,0 +1,40 @@
+package template;
+
+/**
+ * What the search minimises, as a function of the cost of every route. The planner keeps the cost of the routes of
+ * its current solution, tells the objective when they change, and prices every neighbour from the cost changes of
+ * the few routes its move touches, so an objective is evaluated incrementally in about O(1) per neighbour.
+ */
+interface Objective
+{
+    /**
+     * Full evaluation, of any solution.
+     *
+     * @param routeCost cost of every route of the solution, indexed by vehicle
+     */
+    double value(double[] routeCost);
+
+    /**
+     * The current solution of the search changed.
+     *
+     * @param routeCost cost of every route of the current solution, indexed by vehicle
+     *
+     * @return value of the current solution
+     */
+    double update(double[] routeCost);
+
+    /**
+     * Called by the workers, possibly on several threads at once: it must not modify the objective.
+     *
+     * @param routeCost cost of every route of the current solution, as given to the last update()
+     * @param move      move from the current solution
+     *
+     * @return value of the solution the move leads to
+     */
+    double valueAfter(double[] routeCost, Move move);
+
+    /**
+     * @return a value no solution of the problem can be below, see LowerBound
+     */
+    double lowerBound();
+}
@@ -0,0 +1,26 @@
+package template;
+
+/**
+ * Creates the objective named in the search settings.
+ */
+final class Objectives
+{
+    private Objectives()
+    {
+    }
+
+    static Objective create(SearchSettings settings, Problem problem)
+    {
+        switch (settings.getObjective())
+        {
+            case TotalCostObjective.NAME:
+                return new TotalCostObjective(problem);
+            case MakespanObjective.NAME:
+                return new MakespanObjective(problem);
+            case WeightedObjective.NAME:
+                return new WeightedObjective(problem, settings.getMakespanWeight());
+            default:
+                throw new IllegalArgumentException("Unknown objective: " + settings.getObjective());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package template;
+
+/**
+ * Success counters of the neighbourhood operators of one planner: how many candidates each operator proposed, how
+ * often one of them was the neighbour chosen by localChoice, how often that neighbour was accepted, and how often it
+ * improved the best solution.
+ */
+final class OperatorStatistics
+{
+    private final String[] names;
+    private final long[] proposed;
+    private final long[] selected;
+    private final long[] accepted;
+    private final long[] improved;
+
+    OperatorStatistics(String[] names)
+    {
+        this.names = names;
+        this.proposed = new long[names.length];
+        this.selected = new long[names.length];
+        this.accepted = new long[names.length];
+        this.improved = new long[names.length];
+    }
+
+    void proposed(int operator, int candidates)
+    {
+        proposed[operator] += candidates;
+    }
+
+    void selected(int operator)
+    {
+        selected[operator]++;
+    }
+
+    void accepted(int operator)
+    {
+        accepted[operator]++;
+    }
+
+    void improved(int operator)
+    {
+        improved[operator]++;
+    }
+
+    long getProposed(int operator)
+    {
+        return proposed[operator];
+    }
+
+    long getSelected(int operator)
+    {
+        return selected[operator];
+    }
+
+    long getAccepted(int operator)
+    {
+        return accepted[operator];
+    }
+
+    long getImproved(int operator)
+    {
+        return improved[operator];
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < names.length; i++)
+        {
+            builder.append(names[i])
+                    .append(": proposed ").append(proposed[i])
+                    .append(", selected ").append(selected[i])
+                    .append(", accepted ").append(accepted[i])
+                    .append(", improved ").append(improved[i])
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Or-opt within a route: moves a segment of one to MAX_LENGTH jobs of a random route to every other index of that
+ * route.
+ */
+final class OrOptOperator implements NeighbourOperator
+{
+    static final String NAME = "or-opt";
+    static final int MAX_LENGTH = 3;
+
+    private final Problem problem;
+    private int vehicle;
+    private int start;
+    private int length;
+
+    OrOptOperator(Problem problem)
+    {
+        this.problem = problem;
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public int maxCandidates()
+    {
+        return 2 * problem.taskCount();
+    }
+
+    @Override
+    public int prepare(Solution solution, Random random)
+    {
+        vehicle = NeighbourOperators.randomVehicle(solution, random);
+        if (vehicle < 0 || solution.size(vehicle) < 3)
+        {
+            return 0;
+        }
+        int size = solution.size(vehicle);
+        length = 1 + random.nextInt(Math.min(MAX_LENGTH, size - 1));
+        start = random.nextInt(size - length + 1);
+        return size - length;
+    }
+
+    @Override
+    public boolean build(int candidate, MoveBuilder builder, Move move)
+    {
+        // destinations go from 0 to size - length, the start itself excluded
+        int destination = candidate < start ? candidate : candidate + 1;
+        return builder.moveSegment(move, vehicle, start, length, destination);
+    }
+}
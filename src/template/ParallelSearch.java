@@ -0,0 +1,148 @@
+package template;
+
+import logist.simulation.Vehicle;
+import logist.task.TaskSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-start stochastic local search: independent CentralizedPlanner searches, each with its own seed and initial
+ * solution, run on a fork-join pool until the deadline, and the planner holding the cheapest solution is returned.
+ * Every planner publishes its improvements to a lock-free shared best cost, and they all stop as soon as it is within
+ * stop-gap of the lower bound, the objective being met. With the default stop-gap of 0 they only stop early when one
+ * of them reaches the lower bound, an optimal solution; otherwise they run independently, and the result only
+ * depends on the seed, not on the timing of the planners. A ParallelSearch runs one search at a time; concurrent searches use one ParallelSearch
+ * each, and may share the pool.
+ */
+final class ParallelSearch
+{
+    // spreads the seeds of the different starts, see SplittableRandom
+    static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final ForkJoinPool pool;
+    private final SearchSettings settings;
+    private final int starts;
+    private final int neighbourThreads;
+    private final AtomicLong bestCost = new AtomicLong();
+    private final List<SearchListener> listeners = new ArrayList<>();
+    private Checkpoint checkpoint;
+    private int iterations;
+
+    /**
+     * @param pool     pool the searches run on
+     * @param settings settings of the searches, getStarts() of them are run
+     */
+    ParallelSearch(ForkJoinPool pool, SearchSettings settings)
+    {
+        this.pool = pool;
+        this.settings = settings;
+        this.starts = settings.getStarts();
+        this.neighbourThreads = settings.getNeighbourThreads();
+    }
+
+    /**
+     * Report every iteration of every search to a listener, which is then called from several threads.
+     */
+    void addListener(SearchListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Offer the best solution of every search to a checkpoint, which then keeps the cheapest of them.
+     */
+    void setCheckpoint(Checkpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Run all the searches and wait for them.
+     *
+     * @param deadline      System.nanoTime() value at which the searches have to stop
+     * @param maxIterations maximum number of iterations of each search
+     *
+     * @return the planner with the cheapest best-so-far solution
+     */
+    CentralizedPlanner search(final List<Vehicle> vehicles, final TaskSet tasks, final DistanceCache distances,
+                              final long seed, final long deadline, final int maxIterations)
+    {
+        bestCost.set(Double.doubleToLongBits(Double.MAX_VALUE));
+        List<ForkJoinTask<CentralizedPlanner>> runs = new ArrayList<>(starts);
+        for (int i = 0; i < starts; i++)
+        {
+            final int start = i;
+            runs.add(pool.submit(new Callable<CentralizedPlanner>()
+            {
+                @Override
+                public CentralizedPlanner call()
+                {
+                    CentralizedPlanner planner = new CentralizedPlanner(vehicles, tasks, distances, settings,
+                            seed + start * SEED_INCREMENT);
+                    // the first start builds the usual initial solution, the others start from random ones
+                    if (start > 0)
+                    {
+                        planner.selectRandomInitialSolution(deadline);
+                    } else
+                    {
+                        planner.selectInitialSolution(pool, deadline);
+                    }
+                    if (neighbourThreads > 1)
+                    {
+                        planner.parallelNeighbourhood(pool, neighbourThreads);
+                    }
+                    for (SearchListener listener : listeners)
+                    {
+                        planner.addListener(listener);
+                    }
+                    planner.setCheckpoint(checkpoint);
+                    planner.shareBestCost(bestCost);
+                    planner.search(deadline, maxIterations);
+                    return planner;
+                }
+            }));
+        }
+
+        CentralizedPlanner best = null;
+        iterations = 0;
+        for (ForkJoinTask<CentralizedPlanner> run : runs)
+        {
+            CentralizedPlanner planner = run.join();
+            iterations += planner.getIterations();
+            if (best == null || planner.getFinalCost() < best.getFinalCost())
+            {
+                best = planner;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return total number of iterations of the last search, over all the starts
+     */
+    int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Lower the shared best cost to cost if it is cheaper, without locking.
+     */
+    static void publish(AtomicLong bestCost, double cost)
+    {
+        long current;
+        do
+        {
+            current = bestCost.get();
+            if (Double.longBitsToDouble(current) <= cost)
+            {
+                return;
+            }
+        } while (!bestCost.compareAndSet(current, Double.doubleToLongBits(cost)));
+    }
+}
@@ -0,0 +1,39 @@
+package template;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The fork-join pool shared by all the planners of the JVM, one thread per core. Agents planning at the same time
+ * share its threads instead of each starting a pool of their own. Its threads are daemon threads, so it never keeps
+ * the JVM alive.
+ */
+final class PlannerPool
+{
+    private PlannerPool()
+    {
+    }
+
+    // created on first use by the class loader, which makes it safe to publish
+    private static final class Holder
+    {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    static ForkJoinPool get()
+    {
+        return Holder.POOL;
+    }
+
+    /**
+     * @return the shared pool for one thread per core, null for a single thread, so that the work runs on the
+     * calling thread, and a pool of its own for any other number of threads
+     */
+    static ForkJoinPool get(int threads)
+    {
+        if (threads <= 1)
+        {
+            return null;
+        }
+        return threads == Runtime.getRuntime().availableProcessors() ? get() : new ForkJoinPool(threads);
+    }
+}
@@ -0,0 +1,184 @@
+package template;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import logist.task.TaskSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The data of one planning problem in the form the search uses: tasks indexed by id, vehicles indexed by id, and the
+ * city and load change of every encoded job (see {@link Solution#job(int, int)}).
+ * It is immutable, so all the threads of a search, and several searches, read it without synchronization.
+ * <p>
+ * A problem can also be given by plain arrays, without logist tasks and vehicles, to run the search outside the
+ * platform (see the benchmarks in bench/); task() and vehicle() then return null and no Plan can be built.
+ */
+final class Problem
+{
+    private final Task[] tasks;
+    private final List<Vehicle> vehicles;
+    private final DistanceCache distances;
+    private final int[] jobCity;
+    private final int[] jobLoad;
+    private final int[] capacity;
+    // km/h of every vehicle
+    private final double[] speed;
+    private final CostModel costModel;
+    // candidate lists of the insertion, null to try every position
+    private final NearestCities nearestCities;
+
+    /**
+     * @param vehicles  vehicles, indexed by id
+     * @param tasks     tasks, their ids going from 0 to tasks.size() - 1
+     * @param distances distances of the topology the tasks live in
+     */
+    Problem(List<Vehicle> vehicles, TaskSet tasks, DistanceCache distances)
+    {
+        this(vehicles, tasks, distances, 0);
+    }
+
+    /**
+     * @param vehicles            vehicles, indexed by id
+     * @param tasks               tasks, their ids going from 0 to tasks.size() - 1
+     * @param distances           distances of the topology the tasks live in
+     * @param candidateNeighbours insertion only tries positions next to one of the candidateNeighbours nearest
+     *                            cities of the inserted one, 0 to try every position
+     */
+    Problem(List<Vehicle> vehicles, TaskSet tasks, DistanceCache distances, int candidateNeighbours)
+    {
+        this.tasks = new Task[tasks.size()];
+        this.vehicles = Collections.unmodifiableList(new ArrayList<>(vehicles));
+        this.distances = distances;
+        this.jobCity = new int[2 * tasks.size()];
+        this.jobLoad = new int[2 * tasks.size()];
+        for (Task task : tasks)
+        {
+            this.tasks[task.id] = task;
+            jobCity[Solution.job(task.id, CentralizedPlanner.PICKUP)] = task.pickupCity.id;
+            jobCity[Solution.job(task.id, CentralizedPlanner.DELIVERY)] = task.deliveryCity.id;
+            jobLoad[Solution.job(task.id, CentralizedPlanner.PICKUP)] = task.weight;
+            jobLoad[Solution.job(task.id, CentralizedPlanner.DELIVERY)] = -task.weight;
+        }
+        this.capacity = new int[vehicles.size()];
+        this.speed = new double[vehicles.size()];
+        for (Vehicle vehicle : vehicles)
+        {
+            capacity[vehicle.id()] = vehicle.capacity();
+            speed[vehicle.id()] = vehicle.speed();
+        }
+        this.costModel = new CostModel(vehicles, jobCity, distances);
+        this.nearestCities = candidateNeighbours > 0 ? new NearestCities(distances, candidateNeighbours) : null;
+    }
+
+    /**
+     * @param capacity     capacity of every vehicle
+     * @param home         city id every vehicle starts from
+     * @param costPerKm    cost per kilometre of every vehicle
+     * @param speed        speed of every vehicle, in km/h
+     * @param pickupCity   pickup city id of every task
+     * @param deliveryCity delivery city id of every task
+     * @param weight       weight of every task
+     * @param distances    distances between the cities
+     * @param candidateNeighbours number of nearest cities insertion is restricted to, 0 for none
+     */
+    Problem(int[] capacity, int[] home, double[] costPerKm, double[] speed, int[] pickupCity, int[] deliveryCity,
+            int[] weight, DistanceCache distances, int candidateNeighbours)
+    {
+        this.tasks = new Task[weight.length];
+        this.vehicles = null;
+        this.distances = distances;
+        this.jobCity = new int[2 * weight.length];
+        this.jobLoad = new int[2 * weight.length];
+        for (int task = 0; task < weight.length; task++)
+        {
+            jobCity[Solution.job(task, CentralizedPlanner.PICKUP)] = pickupCity[task];
+            jobCity[Solution.job(task, CentralizedPlanner.DELIVERY)] = deliveryCity[task];
+            jobLoad[Solution.job(task, CentralizedPlanner.PICKUP)] = weight[task];
+            jobLoad[Solution.job(task, CentralizedPlanner.DELIVERY)] = -weight[task];
+        }
+        this.capacity = capacity.clone();
+        this.speed = speed.clone();
+        this.costModel = new CostModel(home.clone(), costPerKm.clone(), jobCity, distances);
+        this.nearestCities = candidateNeighbours > 0 ? new NearestCities(distances, candidateNeighbours) : null;
+    }
+
+    int taskCount()
+    {
+        return tasks.length;
+    }
+
+    int vehicleCount()
+    {
+        return capacity.length;
+    }
+
+    Task task(int id)
+    {
+        return tasks[id];
+    }
+
+    Vehicle vehicle(int id)
+    {
+        return vehicles == null ? null : vehicles.get(id);
+    }
+
+    List<Vehicle> vehicles()
+    {
+        return vehicles;
+    }
+
+    DistanceCache distances()
+    {
+        return distances;
+    }
+
+    CostModel costModel()
+    {
+        return costModel;
+    }
+
+    /**
+     * @return candidate lists of the insertion, null when every position is tried
+     */
+    NearestCities nearestCities()
+    {
+        return nearestCities;
+    }
+
+    int weight(int task)
+    {
+        return jobLoad[Solution.job(task, CentralizedPlanner.PICKUP)];
+    }
+
+    int capacity(int vehicle)
+    {
+        return capacity[vehicle];
+    }
+
+    /**
+     * @return speed of a vehicle, in km/h
+     */
+    double speed(int vehicle)
+    {
+        return speed[vehicle];
+    }
+
+    /**
+     * @return city id of an encoded job
+     */
+    int jobCity(int job)
+    {
+        return jobCity[job];
+    }
+
+    /**
+     * @return load change of an encoded job, positive for a pickup and negative for a delivery
+     */
+    int jobLoad(int job)
+    {
+        return jobLoad[job];
+    }
+}
@@ -0,0 +1,198 @@
+package template;
+
+import java.util.Arrays;
+
+/**
+ * Insertion construction: starting from empty routes, the task inserted next is the one with the highest regret,
+ * and it goes to its cheapest feasible position. The regret of a task is what is lost by not inserting it in its
+ * best vehicle: the sum over its k - 1 next best vehicles of the difference with the best one. With k = 1 this is
+ * plain cheapest insertion, the task with the cheapest insertion goes first.
+ * <p>
+ * The cheapest insertion of every task in every vehicle is cached, and only the column of the vehicle that just
+ * received a task is recomputed. The same insertion also repairs partial solutions for the large neighbourhood
+ * search, see insert(); the cache is kept between calls, so an instance is used by one thread at a time.
+ */
+final class RegretInsertionBuilder implements InitialSolutionBuilder
+{
+    static final String CHEAPEST_INSERTION = "cheapest-insertion";
+    static final String REGRET = "regret-";
+    // the deadline is read once per COSTS_PER_CLOCK_CHECK insertion costs
+    private static final int COSTS_PER_CLOCK_CHECK = 64;
+
+    private final Problem problem;
+    private final int k;
+    // cost[i * vehicles + vehicle]: cheapest insertion of the i-th pending task, MAX_VALUE if it does not fit
+    private final double[] cost;
+    private final boolean[] inserted;
+    private final double[] best;
+
+    /**
+     * @param k number of vehicles the regret is taken over, 1 for cheapest insertion
+     */
+    RegretInsertionBuilder(Problem problem, int k)
+    {
+        this.problem = problem;
+        this.k = k;
+        this.cost = new double[problem.taskCount() * problem.vehicleCount()];
+        this.inserted = new boolean[problem.taskCount()];
+        this.best = new double[k];
+    }
+
+    @Override
+    public String name()
+    {
+        return k == 1 ? CHEAPEST_INSERTION : REGRET + k;
+    }
+
+    @Override
+    public boolean build(Solution solution, long deadline)
+    {
+        int[] tasks = new int[problem.taskCount()];
+        for (int task = 0; task < tasks.length; task++)
+        {
+            tasks[task] = task;
+        }
+        solution.clear();
+        return insert(new MoveBuilder(problem, solution), tasks, tasks.length, deadline);
+    }
+
+    /**
+     * Insert tasks that are in no route into the solution of a builder, highest regret first.
+     *
+     * @param builder  builder working on the solution to complete
+     * @param tasks    the tasks to insert, in tasks[0..count-1]
+     * @param count    number of tasks to insert
+     * @param deadline System.nanoTime() value at which the insertion has to give up
+     *
+     * @return false if some task fits no vehicle or the deadline was reached, the solution is then incomplete
+     */
+    boolean insert(MoveBuilder builder, int[] tasks, int count, long deadline)
+    {
+        Solution solution = builder.solution();
+        int vehicles = problem.vehicleCount();
+        Arrays.fill(inserted, 0, count, false);
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            if (!updateCosts(builder, tasks, count, vehicle, deadline))
+            {
+                return false;
+            }
+        }
+
+        for (int round = 0; round < count; round++)
+        {
+            int chosen = -1;
+            int chosenMissing = 0;
+            double chosenRegret = 0;
+            double chosenCost = 0;
+            for (int i = 0; i < count; i++)
+            {
+                if (inserted[i])
+                {
+                    continue;
+                }
+                int feasible = kBest(i, vehicles);
+                if (feasible == 0)
+                {
+                    return false;
+                }
+                // tasks that fit in fewer than k vehicles first, as they risk fitting nowhere later
+                int missing = k - feasible;
+                double regret = 0;
+                for (int j = 1; j < feasible; j++)
+                {
+                    regret += best[j] - best[0];
+                }
+                if (chosen == -1 || missing > chosenMissing
+                        || (missing == chosenMissing && (regret > chosenRegret
+                        || (regret == chosenRegret && best[0] < chosenCost))))
+                {
+                    chosen = i;
+                    chosenMissing = missing;
+                    chosenRegret = regret;
+                    chosenCost = best[0];
+                }
+            }
+
+            int task = tasks[chosen];
+            int vehicle = cheapestVehicle(chosen, vehicles);
+            builder.cheapestInsertion(vehicle, task);
+            solution.insert(vehicle, builder.insertPickupAt(), Solution.job(task, CentralizedPlanner.PICKUP));
+            solution.insert(vehicle, builder.insertDeliveryAt(), Solution.job(task, CentralizedPlanner.DELIVERY));
+            inserted[chosen] = true;
+            if (!updateCosts(builder, tasks, count, vehicle, deadline))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recompute the cheapest insertion in a vehicle of every task not inserted yet.
+     *
+     * @return false if the deadline was reached
+     */
+    private boolean updateCosts(MoveBuilder builder, int[] tasks, int count, int vehicle, long deadline)
+    {
+        int vehicles = problem.vehicleCount();
+        for (int i = 0; i < count; i++)
+        {
+            if (inserted[i])
+            {
+                continue;
+            }
+            if (i % COSTS_PER_CLOCK_CHECK == 0 && System.nanoTime() - deadline >= 0)
+            {
+                return false;
+            }
+            cost[i * vehicles + vehicle] = builder.cheapestInsertion(vehicle, tasks[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Sort the k cheapest insertion costs of the i-th pending task into best.
+     *
+     * @return number of vehicles the task fits in, at most k
+     */
+    private int kBest(int i, int vehicles)
+    {
+        Arrays.fill(best, Double.MAX_VALUE);
+        int feasible = 0;
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            double c = cost[i * vehicles + vehicle];
+            if (c == Double.MAX_VALUE)
+            {
+                continue;
+            }
+            feasible = Math.min(feasible + 1, k);
+            if (c >= best[k - 1])
+            {
+                continue;
+            }
+            int j = k - 1;
+            while (j > 0 && best[j - 1] > c)
+            {
+                best[j] = best[j - 1];
+                j--;
+            }
+            best[j] = c;
+        }
+        return feasible;
+    }
+
+    private int cheapestVehicle(int i, int vehicles)
+    {
+        int cheapest = 0;
+        for (int vehicle = 1; vehicle < vehicles; vehicle++)
+        {
+            if (cost[i * vehicles + vehicle] < cost[i * vehicles + cheapest])
+            {
+                cheapest = vehicle;
+            }
+        }
+        return cheapest;
+    }
+}
@@ -0,0 +1,51 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Moves a random task, pickup and delivery together, to its cheapest feasible position in every vehicle, its own
+ * vehicle included.
+ */
+final class RelocateOperator implements NeighbourOperator
+{
+    static final String NAME = "relocate";
+
+    private final Problem problem;
+    private int task;
+    private int vehicle;
+
+    RelocateOperator(Problem problem)
+    {
+        this.problem = problem;
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public int maxCandidates()
+    {
+        return problem.vehicleCount();
+    }
+
+    @Override
+    public int prepare(Solution solution, Random random)
+    {
+        vehicle = NeighbourOperators.randomVehicle(solution, random);
+        if (vehicle < 0)
+        {
+            return 0;
+        }
+        task = NeighbourOperators.randomTask(solution, vehicle, random);
+        return problem.vehicleCount();
+    }
+
+    @Override
+    public boolean build(int candidate, MoveBuilder builder, Move move)
+    {
+        return builder.relocateToBest(move, task, vehicle, candidate);
+    }
+}
@@ -0,0 +1,74 @@
+package template;
+
+/**
+ * Where every city occurs in the routes of one solution: for every route, a list of the indices of the jobs in each
+ * city, in increasing order. The lists of a route are rebuilt the first time they are read after the route changed,
+ * so a builder inserting many tasks in the same routes only builds them once.
+ */
+final class RouteCities
+{
+    private final Problem problem;
+    private final Solution solution;
+    // first[v][city] is the first index of the city in route v when built[v][city] is the current build of route v
+    private final int[][] first;
+    private final int[][] built;
+    // next[v][i] is the next index of the city of job i in route v, -1 after the last one
+    private final int[][] next;
+    // version of every route the lists were built for, and number of builds of every route
+    private final int[] versions;
+    private final int[] builds;
+
+    RouteCities(Problem problem, Solution solution)
+    {
+        int vehicles = problem.vehicleCount();
+        int cities = problem.distances().size();
+        this.problem = problem;
+        this.solution = solution;
+        this.first = new int[vehicles][cities];
+        this.built = new int[vehicles][cities];
+        this.next = new int[vehicles][2 * problem.taskCount()];
+        this.versions = new int[vehicles];
+        this.builds = new int[vehicles];
+        for (int vehicle = 0; vehicle < vehicles; vehicle++)
+        {
+            versions[vehicle] = solution.version(vehicle) - 1;
+        }
+    }
+
+    /**
+     * @return index of the first job of the route in city, -1 if there is none
+     */
+    int first(int vehicle, int city)
+    {
+        if (versions[vehicle] != solution.version(vehicle))
+        {
+            build(vehicle);
+        }
+        return built[vehicle][city] == builds[vehicle] ? first[vehicle][city] : -1;
+    }
+
+    /**
+     * @return index of the next job of the route in the city of the job at index, -1 if there is none
+     */
+    int next(int vehicle, int index)
+    {
+        return next[vehicle][index];
+    }
+
+    private void build(int vehicle)
+    {
+        int build = ++builds[vehicle];
+        int[] route = solution.route(vehicle);
+        int[] firstOf = first[vehicle];
+        int[] builtOf = built[vehicle];
+        int[] nextOf = next[vehicle];
+        for (int i = solution.size(vehicle) - 1; i >= 0; i--)
+        {
+            int city = problem.jobCity(route[i]);
+            nextOf[i] = builtOf[city] == build ? firstOf[city] : -1;
+            firstOf[city] = i;
+            builtOf[city] = build;
+        }
+        versions[vehicle] = solution.version(vehicle);
+    }
+}
@@ -0,0 +1,99 @@
+package template;
+
+/**
+ * Turns the routes of a solution into the routes the vehicles drive. A vehicle drives the shortest path between two
+ * consecutive jobs, and may pass through the city of a later job on the way: that job is then moved back to this
+ * leg, a pickup if the vehicle has room for the task from there on, a delivery if the task is already carried. The
+ * detour the job caused later on disappears, so a route never gets longer, and jobs in the same city merge into one
+ * stop. The moves are repeated until no job lies on the way of an earlier leg, or until the deadline: every move
+ * leaves a valid solution, so compiling can stop after any of them.
+ */
+final class RouteCompiler
+{
+    // a city is on the way of a leg when the detour through it is shorter; rounding errors must not create moves
+    private static final double EPSILON = 1e-9;
+
+    private RouteCompiler()
+    {
+    }
+
+    /**
+     * Compile every route of a solution in place.
+     *
+     * @param deadline System.nanoTime() value at which compiling stops
+     *
+     * @return number of jobs moved
+     */
+    static int compile(Problem problem, Solution solution, long deadline)
+    {
+        int moved = 0;
+        for (int vehicle = 0; vehicle < solution.vehicles(); vehicle++)
+        {
+            moved += compile(problem, solution, vehicle, deadline);
+        }
+        return moved;
+    }
+
+    /**
+     * Compile the route of a vehicle in place.
+     *
+     * @param deadline System.nanoTime() value at which compiling stops
+     *
+     * @return number of jobs moved
+     */
+    static int compile(Problem problem, Solution solution, int vehicle, long deadline)
+    {
+        CostModel costModel = problem.costModel();
+        double[][] distance = problem.distances().distances();
+        int capacity = problem.capacity(vehicle);
+        int moved = 0;
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (int i = 1; i < solution.size(vehicle); i++)
+            {
+                // a pass is quadratic in the length of the route, the clock is read once per job
+                if (System.nanoTime() - deadline >= 0)
+                {
+                    return moved;
+                }
+                int job = solution.get(vehicle, i);
+                int city = problem.jobCity(job);
+                int task = Solution.task(job);
+                int first;
+                if (Solution.action(job) == CentralizedPlanner.PICKUP)
+                {
+                    // the pickup can move to k if the jobs k-1..i-1 all leave room for the task
+                    first = i;
+                    while (first > 0 && solution.loadAfter(vehicle, first - 1) + problem.weight(task) <= capacity)
+                    {
+                        first--;
+                    }
+                    if (first > 0)
+                    {
+                        first++;
+                    }
+                } else
+                {
+                    // a delivery stays after its pickup
+                    first = solution.indexOf(vehicle, Solution.job(task, CentralizedPlanner.PICKUP)) + 1;
+                }
+                for (int k = first; k < i; k++)
+                {
+                    int before = costModel.cityAt(solution, vehicle, k - 1);
+                    int after = costModel.cityAt(solution, vehicle, k);
+                    if (distance[before][city] + distance[city][after] - distance[before][after] <= EPSILON
+                            && costModel.segmentDelta(solution, vehicle, i, 1, k) < -EPSILON)
+                    {
+                        solution.moveSegment(vehicle, i, 1, k);
+                        moved++;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,20 @@
+package template;
+
+/**
+ * Receives the outcome of every iteration of a planner, on the thread running the planner. It is called at every
+ * iteration, so it has to be cheap; the planners of a parallel search may share a listener and call it from
+ * several threads at once.
+ */
+interface SearchListener
+{
+    /**
+     * @param neighbours    number of neighbours built by the iteration
+     * @param accepted      true if the chosen neighbour became the current solution
+     * @param currentCost   cost of the current solution after the iteration
+     * @param bestCost      cost of the best solution of the planner after the iteration
+     * @param generateNanos time spent generating the neighbourhood
+     * @param chooseNanos   time spent choosing, applying and accepting the neighbour
+     */
+    void iterationDone(int neighbours, boolean accepted, double currentCost, double bestCost, long generateNanos,
+                       long chooseNanos);
+}
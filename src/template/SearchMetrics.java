@@ -0,0 +1,310 @@
+package template;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms of the search, in place of printing every iteration: iterations, neighbours built,
+ * accepted moves, improvements of the best cost with their trajectory, and the time spent in the two phases of an
+ * iteration. All the planners of a parallel search may report to the same metrics; the counters are atomic and
+ * the best cost is the lowest reported by any of them. At the end of a plan, planDone adds what is only known then:
+ * its duration, its lower bound and the statistics of the operators. The metrics are read through
+ * SearchMetricsMXBean.
+ */
+final class SearchMetrics implements SearchListener, SearchMetricsMXBean
+{
+    // improvements kept in the trajectory, every other one is dropped when it is full
+    private static final int TRAJECTORY_CAPACITY = 1024;
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong neighbours = new AtomicLong();
+    private final AtomicLong acceptedMoves = new AtomicLong();
+    private final AtomicLong improvements = new AtomicLong();
+    private final AtomicLong emptyNeighbourhoods = new AtomicLong();
+    // bits of the best cost, see lowerBestCost
+    private final AtomicLong bestCost = new AtomicLong();
+    private volatile double currentCost;
+    private final Histogram generation = new Histogram();
+    private final Histogram choice = new Histogram();
+
+    private final long[] trajectoryTime = new long[TRAJECTORY_CAPACITY];
+    private final double[] trajectoryCost = new double[TRAJECTORY_CAPACITY];
+    private int trajectorySize;
+    private volatile long start;
+
+    // set by planDone at the end of the plan
+    private volatile long planMillis;
+    private volatile double lowerBound;
+    private volatile int jobsMovedOnTheWay;
+    private volatile String operatorStatistics = "";
+    private volatile String lnsWeights = "";
+
+    SearchMetrics()
+    {
+        reset();
+    }
+
+    /**
+     * Clear the metrics, at the start of a plan.
+     */
+    synchronized void reset()
+    {
+        iterations.set(0);
+        neighbours.set(0);
+        acceptedMoves.set(0);
+        improvements.set(0);
+        emptyNeighbourhoods.set(0);
+        bestCost.set(Double.doubleToLongBits(Double.MAX_VALUE));
+        currentCost = 0;
+        generation.reset();
+        choice.reset();
+        trajectorySize = 0;
+        start = System.nanoTime();
+        planMillis = 0;
+        lowerBound = 0;
+        jobsMovedOnTheWay = 0;
+        operatorStatistics = "";
+        lnsWeights = "";
+    }
+
+    /**
+     * Record the outcome of a plan, once its search is over.
+     *
+     * @param planMillis         duration of the plan
+     * @param lowerBound         lower bound of the objective
+     * @param jobsMovedOnTheWay  pickups and deliveries moved on the way of an earlier leg, see RouteCompiler
+     * @param operatorStatistics statistics of the neighbourhood operators, see OperatorStatistics
+     * @param lnsWeights         weights of the ruin and recreate heuristics, empty when they are not used
+     */
+    void planDone(long planMillis, double lowerBound, int jobsMovedOnTheWay, String operatorStatistics,
+                  String lnsWeights)
+    {
+        this.planMillis = planMillis;
+        this.lowerBound = lowerBound;
+        this.jobsMovedOnTheWay = jobsMovedOnTheWay;
+        this.operatorStatistics = operatorStatistics;
+        this.lnsWeights = lnsWeights;
+    }
+
+    /**
+     * Make the metrics readable over JMX. A failure is reported and otherwise ignored, the search does not need it.
+     *
+     * @param name name of the agent, so that several agents in the same JVM get different beans
+     */
+    void register(String name)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("template:type=SearchMetrics,name=" + ObjectName.quote(name)));
+        } catch (JMException e)
+        {
+            System.out.println("The search metrics could not be registered: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void iterationDone(int neighbours, boolean accepted, double currentCost, double bestCost,
+                              long generateNanos, long chooseNanos)
+    {
+        iterations.incrementAndGet();
+        this.neighbours.addAndGet(neighbours);
+        if (neighbours == 0)
+        {
+            emptyNeighbourhoods.incrementAndGet();
+        }
+        if (accepted)
+        {
+            acceptedMoves.incrementAndGet();
+        }
+        this.currentCost = currentCost;
+        generation.record(generateNanos);
+        choice.record(chooseNanos);
+        if (lowerBestCost(bestCost))
+        {
+            improvements.incrementAndGet();
+            record(bestCost);
+        }
+    }
+
+    /**
+     * @return true if cost is lower than the best cost reported so far, which it becomes
+     */
+    private boolean lowerBestCost(double cost)
+    {
+        long current;
+        do
+        {
+            current = bestCost.get();
+            if (Double.longBitsToDouble(current) <= cost)
+            {
+                return false;
+            }
+        } while (!bestCost.compareAndSet(current, Double.doubleToLongBits(cost)));
+        return true;
+    }
+
+    private synchronized void record(double cost)
+    {
+        if (trajectorySize == TRAJECTORY_CAPACITY)
+        {
+            for (int i = 0; i < TRAJECTORY_CAPACITY / 2; i++)
+            {
+                trajectoryTime[i] = trajectoryTime[2 * i + 1];
+                trajectoryCost[i] = trajectoryCost[2 * i + 1];
+            }
+            trajectorySize = TRAJECTORY_CAPACITY / 2;
+        }
+        trajectoryTime[trajectorySize] = System.nanoTime() - start;
+        trajectoryCost[trajectorySize] = cost;
+        trajectorySize++;
+    }
+
+    @Override
+    public long getIterations()
+    {
+        return iterations.get();
+    }
+
+    @Override
+    public long getNeighbours()
+    {
+        return neighbours.get();
+    }
+
+    @Override
+    public long getAcceptedMoves()
+    {
+        return acceptedMoves.get();
+    }
+
+    @Override
+    public long getImprovements()
+    {
+        return improvements.get();
+    }
+
+    @Override
+    public long getEmptyNeighbourhoods()
+    {
+        return emptyNeighbourhoods.get();
+    }
+
+    @Override
+    public double getBestCost()
+    {
+        return Double.longBitsToDouble(bestCost.get());
+    }
+
+    @Override
+    public double getCurrentCost()
+    {
+        return currentCost;
+    }
+
+    @Override
+    public double getGenerationMeanMicros()
+    {
+        return generation.mean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getGenerationP99Micros()
+    {
+        return generation.percentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getChoiceMeanMicros()
+    {
+        return choice.mean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getChoiceP99Micros()
+    {
+        return choice.percentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public long[] getGenerationHistogram()
+    {
+        return generation.buckets();
+    }
+
+    @Override
+    public long[] getChoiceHistogram()
+    {
+        return choice.buckets();
+    }
+
+    @Override
+    public synchronized double[] getBestCostTimesMillis()
+    {
+        double[] times = new double[trajectorySize];
+        for (int i = 0; i < trajectorySize; i++)
+        {
+            times[i] = trajectoryTime[i] / NANOS_PER_MILLI;
+        }
+        return times;
+    }
+
+    @Override
+    public synchronized double[] getBestCostTrajectory()
+    {
+        return Arrays.copyOf(trajectoryCost, trajectorySize);
+    }
+
+    @Override
+    public long getPlanMillis()
+    {
+        return planMillis;
+    }
+
+    @Override
+    public double getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    @Override
+    public int getJobsMovedOnTheWay()
+    {
+        return jobsMovedOnTheWay;
+    }
+
+    @Override
+    public String getOperatorStatistics()
+    {
+        return operatorStatistics;
+    }
+
+    @Override
+    public String getLnsWeights()
+    {
+        return lnsWeights;
+    }
+
+    /**
+     * @return a summary of the metrics on one line
+     */
+    @Override
+    public String toString()
+    {
+        return new StringBuilder()
+                .append(getIterations()).append(" iterations, ")
+                .append(getNeighbours()).append(" neighbours, ")
+                .append(getAcceptedMoves()).append(" accepted, ")
+                .append(getImprovements()).append(" improvements, best cost ").append(getBestCost())
+                .append(", generation ").append(getGenerationMeanMicros()).append(" us mean ")
+                .append(getGenerationP99Micros()).append(" us p99, choice ")
+                .append(getChoiceMeanMicros()).append(" us mean ")
+                .append(getChoiceP99Micros()).append(" us p99")
+                .toString();
+    }
+}
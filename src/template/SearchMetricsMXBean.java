@@ -0,0 +1,78 @@
+package template;
+
+/**
+ * Management interface of {@link SearchMetrics}, registered on the platform MBean server under
+ * template:type=SearchMetrics when the agent property metrics-jmx is true. Durations are in microseconds.
+ */
+public interface SearchMetricsMXBean
+{
+    long getIterations();
+
+    long getNeighbours();
+
+    long getAcceptedMoves();
+
+    long getImprovements();
+
+    /**
+     * @return iterations in which no feasible neighbour was found
+     */
+    long getEmptyNeighbourhoods();
+
+    double getBestCost();
+
+    double getCurrentCost();
+
+    double getGenerationMeanMicros();
+
+    double getGenerationP99Micros();
+
+    double getChoiceMeanMicros();
+
+    double getChoiceP99Micros();
+
+    /**
+     * @return iterations per power of two of nanoseconds spent generating the neighbourhood, see Histogram
+     */
+    long[] getGenerationHistogram();
+
+    /**
+     * @return iterations per power of two of nanoseconds spent choosing the neighbour, see Histogram
+     */
+    long[] getChoiceHistogram();
+
+    /**
+     * @return milliseconds since the start of the plan of the recorded improvements of the best cost
+     */
+    double[] getBestCostTimesMillis();
+
+    /**
+     * @return best cost after each recorded improvement
+     */
+    double[] getBestCostTrajectory();
+
+    /**
+     * @return milliseconds taken by the last plan, 0 while it runs
+     */
+    long getPlanMillis();
+
+    /**
+     * @return lower bound of the objective of the last plan, see LowerBound
+     */
+    double getLowerBound();
+
+    /**
+     * @return pickups and deliveries of the last plan moved on the way of an earlier leg, see RouteCompiler
+     */
+    int getJobsMovedOnTheWay();
+
+    /**
+     * @return proposed, selected, accepted and improving neighbours of every operator of the last plan, one line each
+     */
+    String getOperatorStatistics();
+
+    /**
+     * @return weights of the ruin and recreate heuristics at the end of the last plan, one line each
+     */
+    String getLnsWeights();
+}
@@ -0,0 +1,523 @@
+package template;
+
+import logist.agent.Agent;
+
+/**
+ * Settings of the planner search, read from the properties of the agent in agents.xml. A missing property keeps its
+ * default value.
+ * <p>
+ * Planners only read the settings when they are created, so settings shared by the planners of a parallel search
+ * must not be changed while it runs.
+ */
+final class SearchSettings
+{
+    static final long DEFAULT_SEED = 123456;
+    // default fraction of timeout_plan the anytime search is allowed to use
+    static final double DEFAULT_PLAN_BUDGET = 0.9;
+    static final String DEFAULT_OPERATORS = ChangingVehicleOperator.NAME + "," + RelocateOperator.NAME + ","
+            + SwapOperator.NAME + "," + TwoOptOperator.NAME + "," + OrOptOperator.NAME;
+    static final String DEFAULT_INITIAL_SOLUTIONS = NearestVehicleBuilder.NAME + ","
+            + RegretInsertionBuilder.CHEAPEST_INSERTION + "," + RegretInsertionBuilder.REGRET + 2;
+    // default fraction of the search time the initial solution builders may use
+    static final double DEFAULT_INITIAL_BUDGET = 0.2;
+    // default probability of taking a better neighbour with the fixed acceptance
+    static final double DEFAULT_PROBABILITY = 0.8;
+
+    private long seed = DEFAULT_SEED;
+    private boolean anytime = false;
+    private double planBudget = DEFAULT_PLAN_BUDGET;
+    private int starts = 1;
+    private int neighbourThreads = 1;
+    private int phaseThreads = Runtime.getRuntime().availableProcessors();
+    private int exactThreshold = 10;
+    private int decompositionThreshold = 1000;
+    private double decompositionBudget = 0.7;
+    private int candidateNeighbours = 0;
+    private String[] initialSolutions = DEFAULT_INITIAL_SOLUTIONS.split(",");
+    private double initialBudget = DEFAULT_INITIAL_BUDGET;
+    private String[] operators = DEFAULT_OPERATORS.split(",");
+    private String objective = TotalCostObjective.NAME;
+    private double makespanWeight = 1000;
+    private String acceptance = FixedProbabilityAcceptance.NAME;
+    private double probability = DEFAULT_PROBABILITY;
+    private double initialTemperature = 0;
+    private String cooling = SimulatedAnnealingAcceptance.GEOMETRIC;
+    private double coolingRate = 0.999;
+    private int tabuTenure = 10;
+    private int lateAcceptanceLength = 1000;
+    private int visitedSolutions = 1024;
+    private int lnsInterval = 0;
+    private double lnsRemoval = 0.3;
+    private int stagnationWindow = 2000;
+    private int restarts = 3;
+    private double stopGap = 0;
+    private boolean warmStart = true;
+    private int repairIterations = 500;
+    private boolean metricsJmx = false;
+    private String checkpointFile = "";
+    private int checkpointInterval = 10000;
+    private String traceFile = "";
+    private int traceSample = 100;
+
+    /**
+     * Default settings.
+     */
+    SearchSettings()
+    {
+    }
+
+    SearchSettings(Agent agent)
+    {
+        // all the random choices of the search derive from the seed, read as a string to allow any long
+        seed = Long.parseLong(agent.readProperty("seed", String.class, Long.toString(seed)).trim());
+        // "anytime" searches until plan-budget * timeout_plan is used, "iterations" runs a fixed number of iterations
+        anytime = "anytime".equals(agent.readProperty("search-mode", String.class, "iterations"));
+        planBudget = agent.readProperty("plan-budget", Double.class, DEFAULT_PLAN_BUDGET);
+        if (planBudget <= 0 || planBudget > 1)
+        {
+            throw new IllegalArgumentException("plan-budget must be in (0, 1]: " + planBudget);
+        }
+        // 0 starts one search per core
+        starts = agent.readProperty("starts", Integer.class, 1);
+        if (starts <= 0)
+        {
+            starts = Runtime.getRuntime().availableProcessors();
+        }
+        neighbourThreads = agent.readProperty("neighbour-threads", Integer.class, 1);
+        if (neighbourThreads <= 0)
+        {
+            neighbourThreads = Runtime.getRuntime().availableProcessors();
+        }
+        // threads of the exact search, the decomposition and the initial solution builders, 0 for one per core
+        phaseThreads = agent.readProperty("phase-threads", Integer.class, 0);
+        if (phaseThreads <= 0)
+        {
+            phaseThreads = Runtime.getRuntime().availableProcessors();
+        }
+        // up to exact-threshold tasks, the plan is proven optimal by a branch-and-bound; 0 never searches exactly
+        exactThreshold = agent.readProperty("exact-threshold", Integer.class, exactThreshold);
+        if (exactThreshold > BranchAndBound.MAX_TASKS)
+        {
+            throw new IllegalArgumentException("exact-threshold must be at most " + BranchAndBound.MAX_TASKS + ": "
+                    + exactThreshold);
+        }
+        // from decomposition-threshold tasks on, the tasks are clustered per vehicle and the routes searched apart for
+        // decomposition-budget of the search time, before a global search; 0 never decomposes
+        decompositionThreshold = agent.readProperty("decomposition-threshold", Integer.class, decompositionThreshold);
+        decompositionBudget = agent.readProperty("decomposition-budget", Double.class, decompositionBudget);
+        if (decompositionBudget <= 0 || decompositionBudget > 1)
+        {
+            throw new IllegalArgumentException("decomposition-budget must be in (0, 1]: " + decompositionBudget);
+        }
+        initialSolutions = agent.readProperty("initial-solutions", String.class, DEFAULT_INITIAL_SOLUTIONS)
+                .split("\\s*,\\s*");
+        initialBudget = agent.readProperty("initial-budget", Double.class, DEFAULT_INITIAL_BUDGET);
+        if (initialBudget <= 0 || initialBudget > 1)
+        {
+            throw new IllegalArgumentException("initial-budget must be in (0, 1]: " + initialBudget);
+        }
+        operators = agent.readProperty("operators", String.class, DEFAULT_OPERATORS).split("\\s*,\\s*");
+        // insertion only tries positions next to one of the candidate-neighbours nearest cities, 0 tries them all
+        candidateNeighbours = agent.readProperty("candidate-neighbours", Integer.class, candidateNeighbours);
+        if (candidateNeighbours < 0)
+        {
+            throw new IllegalArgumentException("candidate-neighbours must not be negative: " + candidateNeighbours);
+        }
+
+        // total-cost, makespan or weighted: total cost plus makespan-weight per hour of makespan
+        objective = agent.readProperty("objective", String.class, objective);
+        makespanWeight = agent.readProperty("makespan-weight", Double.class, makespanWeight);
+
+        // fixed, annealing, tabu or late-acceptance
+        acceptance = agent.readProperty("acceptance", String.class, acceptance);
+        probability = agent.readProperty("probability", Double.class, DEFAULT_PROBABILITY);
+        initialTemperature = agent.readProperty("initial-temperature", Double.class, initialTemperature);
+        cooling = agent.readProperty("cooling", String.class, cooling);
+        coolingRate = agent.readProperty("cooling-rate", Double.class, coolingRate);
+        tabuTenure = agent.readProperty("tabu-tenure", Integer.class, tabuTenure);
+        lateAcceptanceLength = agent.readProperty("late-acceptance-length", Integer.class, lateAcceptanceLength);
+        // neighbours equal to one of the last visited-solutions solutions are skipped, 0 skips none
+        visitedSolutions = agent.readProperty("visited-solutions", Integer.class, visitedSolutions);
+        if (visitedSolutions < 0)
+        {
+            throw new IllegalArgumentException("visited-solutions must not be negative: " + visitedSolutions);
+        }
+
+        // every lns-interval iterations one is a ruin and recreate step, 0 never does one
+        lnsInterval = agent.readProperty("lns-interval", Integer.class, lnsInterval);
+        lnsRemoval = agent.readProperty("lns-removal", Double.class, lnsRemoval);
+        if (lnsRemoval <= 0 || lnsRemoval > 1)
+        {
+            throw new IllegalArgumentException("lns-removal must be in (0, 1]: " + lnsRemoval);
+        }
+
+        // after stagnation-window iterations without a new best solution the search restarts from a perturbation of
+        // its current solution, and it stops once restarts restarts in a row did not improve it; 0 never stops
+        stagnationWindow = agent.readProperty("stagnation-window", Integer.class, stagnationWindow);
+        restarts = agent.readProperty("restarts", Integer.class, restarts);
+        // the search also stops once the best solution is within stop-gap of the lower bound
+        stopGap = agent.readProperty("stop-gap", Double.class, stopGap);
+        if (stagnationWindow < 0 || restarts < 0 || stopGap < 0)
+        {
+            throw new IllegalArgumentException("stagnation-window, restarts and stop-gap must not be negative");
+        }
+
+        // plan() starts from the solution of the previous call and runs repair-iterations per changed task
+        warmStart = agent.readProperty("warm-start", Boolean.class, warmStart);
+        repairIterations = agent.readProperty("repair-iterations", Integer.class, repairIterations);
+
+        metricsJmx = agent.readProperty("metrics-jmx", Boolean.class, metricsJmx);
+        // an empty checkpoint-file writes no checkpoint; one is written at most every checkpoint-interval ms
+        checkpointFile = agent.readProperty("checkpoint-file", String.class, checkpointFile);
+        checkpointInterval = agent.readProperty("checkpoint-interval", Integer.class, checkpointInterval);
+        if (checkpointInterval < 0)
+        {
+            throw new IllegalArgumentException("checkpoint-interval must not be negative: " + checkpointInterval);
+        }
+        // an empty trace-file writes no trace
+        traceFile = agent.readProperty("trace-file", String.class, traceFile);
+        traceSample = agent.readProperty("trace-sample", Integer.class, traceSample);
+        if (traceSample <= 0)
+        {
+            throw new IllegalArgumentException("trace-sample must be positive: " + traceSample);
+        }
+    }
+
+    /**
+     * @return seed of the search; an iteration-bounded search with the same seed, problem and settings always gives
+     * the same plan, whatever the number of threads
+     */
+    long getSeed()
+    {
+        return seed;
+    }
+
+    void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    boolean isAnytime()
+    {
+        return anytime;
+    }
+
+    double getPlanBudget()
+    {
+        return planBudget;
+    }
+
+    /**
+     * @return number of independent searches run in parallel, 1 for a single search
+     */
+    int getStarts()
+    {
+        return starts;
+    }
+
+    /**
+     * @return parts the neighbourhood of every iteration is split in, 1 to generate it on the calling thread
+     */
+    int getNeighbourThreads()
+    {
+        return neighbourThreads;
+    }
+
+    /**
+     * @return threads the exact search, the sub-problems of the decomposition and the initial solution builders run
+     * on, 1 to run them on the calling thread
+     */
+    int getPhaseThreads()
+    {
+        return phaseThreads;
+    }
+
+    /**
+     * @return number of tasks up to which plan() searches the optimal plan with BranchAndBound, 0 for never
+     */
+    int getExactThreshold()
+    {
+        return exactThreshold;
+    }
+
+    void setExactThreshold(int exactThreshold)
+    {
+        this.exactThreshold = exactThreshold;
+    }
+
+    /**
+     * @return number of tasks from which plan() uses DecompositionSearch, 0 for never
+     */
+    int getDecompositionThreshold()
+    {
+        return decompositionThreshold;
+    }
+
+    void setDecompositionThreshold(int decompositionThreshold)
+    {
+        this.decompositionThreshold = decompositionThreshold;
+    }
+
+    /**
+     * @return fraction of the search time the sub-problems of a decomposition may use
+     */
+    double getDecompositionBudget()
+    {
+        return decompositionBudget;
+    }
+
+    /**
+     * @return names of the initial solution builders, see InitialSolutionBuilders
+     */
+    String[] getInitialSolutions()
+    {
+        return initialSolutions.clone();
+    }
+
+    void setInitialSolutions(String... initialSolutions)
+    {
+        this.initialSolutions = initialSolutions.clone();
+    }
+
+    /**
+     * @return fraction of the time until the search deadline the initial solution builders may use
+     */
+    double getInitialBudget()
+    {
+        return initialBudget;
+    }
+
+    /**
+     * @return names of the neighbourhood operators, see NeighbourOperators
+     */
+    String[] getOperators()
+    {
+        return operators.clone();
+    }
+
+    void setOperators(String... operators)
+    {
+        this.operators = operators.clone();
+    }
+
+    /**
+     * @return name of what the search minimises, see Objectives
+     */
+    String getObjective()
+    {
+        return objective;
+    }
+
+    void setObjective(String objective)
+    {
+        this.objective = objective;
+    }
+
+    /**
+     * @return cost of an hour of makespan in the weighted objective
+     */
+    double getMakespanWeight()
+    {
+        return makespanWeight;
+    }
+
+    /**
+     * @return name of the acceptance strategy, see AcceptanceStrategies
+     */
+    String getAcceptance()
+    {
+        return acceptance;
+    }
+
+    void setAcceptance(String acceptance)
+    {
+        this.acceptance = acceptance;
+    }
+
+    /**
+     * @return probability of taking a better neighbour with the fixed acceptance
+     */
+    double getProbability()
+    {
+        return probability;
+    }
+
+    /**
+     * @return first temperature of simulated annealing, 0 to derive it from the initial cost
+     */
+    double getInitialTemperature()
+    {
+        return initialTemperature;
+    }
+
+    /**
+     * @return cooling schedule of simulated annealing: geometric, linear or logarithmic
+     */
+    String getCooling()
+    {
+        return cooling;
+    }
+
+    double getCoolingRate()
+    {
+        return coolingRate;
+    }
+
+    /**
+     * @return iterations a relocated task stays tabu
+     */
+    int getTabuTenure()
+    {
+        return tabuTenure;
+    }
+
+    /**
+     * @return number of past iterations late acceptance compares with
+     */
+    int getLateAcceptanceLength()
+    {
+        return lateAcceptanceLength;
+    }
+
+    /**
+     * @return number of nearest cities a task is inserted next to, 0 to try every position
+     */
+    int getCandidateNeighbours()
+    {
+        return candidateNeighbours;
+    }
+
+    void setCandidateNeighbours(int candidateNeighbours)
+    {
+        this.candidateNeighbours = candidateNeighbours;
+    }
+
+    /**
+     * @return number of visited solutions the search remembers and does not go back to, 0 for none
+     */
+    int getVisitedSolutions()
+    {
+        return visitedSolutions;
+    }
+
+    void setVisitedSolutions(int visitedSolutions)
+    {
+        this.visitedSolutions = visitedSolutions;
+    }
+
+    /**
+     * @return one iteration out of getLnsInterval() is a large neighbourhood search step, 0 for none
+     */
+    int getLnsInterval()
+    {
+        return lnsInterval;
+    }
+
+    void setLnsInterval(int lnsInterval)
+    {
+        this.lnsInterval = lnsInterval;
+    }
+
+    /**
+     * @return highest share of the tasks a large neighbourhood search step removes
+     */
+    double getLnsRemoval()
+    {
+        return lnsRemoval;
+    }
+
+    /**
+     * @return iterations without a new best solution after which the search restarts or stops, 0 for never
+     */
+    int getStagnationWindow()
+    {
+        return stagnationWindow;
+    }
+
+    void setStagnationWindow(int stagnationWindow)
+    {
+        this.stagnationWindow = stagnationWindow;
+    }
+
+    /**
+     * @return restarts in a row without a new best solution the search makes before it stops
+     */
+    int getRestarts()
+    {
+        return restarts;
+    }
+
+    void setRestarts(int restarts)
+    {
+        this.restarts = restarts;
+    }
+
+    /**
+     * @return gap to the lower bound, relative to the best cost, under which the search stops
+     */
+    double getStopGap()
+    {
+        return stopGap;
+    }
+
+    void setStopGap(double stopGap)
+    {
+        this.stopGap = stopGap;
+    }
+
+    /**
+     * @return true if plan() starts from the solution of the previous call when it can
+     */
+    boolean isWarmStart()
+    {
+        return warmStart;
+    }
+
+    /**
+     * @return iterations of the repair search after a warm start, per task added or removed
+     */
+    int getRepairIterations()
+    {
+        return repairIterations;
+    }
+
+    /**
+     * @return true to make the search metrics readable over JMX
+     */
+    boolean isMetricsJmx()
+    {
+        return metricsJmx;
+    }
+
+    /**
+     * @return file the best solution is checkpointed to and resumed from, empty for no checkpoint
+     */
+    String getCheckpointFile()
+    {
+        return checkpointFile;
+    }
+
+    /**
+     * @return minimum time between two checkpoints of a search, in milliseconds
+     */
+    int getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * @return file the sampled trace of the search is appended to, empty for no trace
+     */
+    String getTraceFile()
+    {
+        return traceFile;
+    }
+
+    /**
+     * @return one iteration out of getTraceSample() is written to the trace
+     */
+    int getTraceSample()
+    {
+        return traceSample;
+    }
+}
@@ -0,0 +1,83 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Simulated annealing: a neighbour that is not worse is always taken, a worse one with probability
+ * exp(-(candidateCost - currentCost) / temperature). The temperature follows a cooling schedule over the iterations.
+ */
+final class SimulatedAnnealingAcceptance implements AcceptanceStrategy
+{
+    static final String NAME = "annealing";
+
+    static final String GEOMETRIC = "geometric";
+    static final String LINEAR = "linear";
+    static final String LOGARITHMIC = "logarithmic";
+
+    // without an initial temperature, it is this fraction of the first current cost seen
+    private static final double AUTO_TEMPERATURE = 0.01;
+
+    private final String schedule;
+    private final double rate;
+    private double initialTemperature;
+    private double temperature;
+    private long iteration;
+
+    /**
+     * @param initialTemperature temperature of the first iteration, 0 to derive it from the initial cost
+     * @param schedule           GEOMETRIC: multiplied by rate at every iteration, LINEAR: lowered by
+     *                           rate * initialTemperature at every iteration, LOGARITHMIC: initialTemperature / (1 +
+     *                           rate * ln(1 + iteration))
+     * @param rate               parameter of the schedule
+     */
+    SimulatedAnnealingAcceptance(double initialTemperature, String schedule, double rate)
+    {
+        if (!GEOMETRIC.equals(schedule) && !LINEAR.equals(schedule) && !LOGARITHMIC.equals(schedule))
+        {
+            throw new IllegalArgumentException("Unknown cooling schedule: " + schedule);
+        }
+        this.initialTemperature = initialTemperature;
+        this.temperature = initialTemperature;
+        this.schedule = schedule;
+        this.rate = rate;
+    }
+
+    @Override
+    public boolean admissible(Move move, double candidateCost, double bestCost)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean accept(double currentCost, double candidateCost, Random random)
+    {
+        if (initialTemperature <= 0)
+        {
+            initialTemperature = Math.max(AUTO_TEMPERATURE * currentCost, Double.MIN_NORMAL);
+            temperature = initialTemperature;
+        }
+        if (candidateCost <= currentCost)
+        {
+            return true;
+        }
+        return temperature > 0 && random.nextDouble() < Math.exp((currentCost - candidateCost) / temperature);
+    }
+
+    @Override
+    public void update(Move move, boolean accepted, double currentCost)
+    {
+        iteration++;
+        switch (schedule)
+        {
+            case GEOMETRIC:
+                temperature *= rate;
+                break;
+            case LINEAR:
+                temperature = Math.max(0, temperature - rate * initialTemperature);
+                break;
+            default:
+                temperature = initialTemperature / (1 + rate * Math.log(1 + iteration));
+                break;
+        }
+    }
+}
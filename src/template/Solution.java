@@ -0,0 +1,371 @@
+package template;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding of a centralized plan: one flat int[] per vehicle holding the jobs of that vehicle in order.
+ * A job packs the task id and the action into a single int, (task << 1) | action, so a solution holds no boxed
+ * objects and can be copied with System.arraycopy.
+ * <p>
+ * Every route also has a load profile: the load after each job, and the highest load from each job to the end of
+ * the route. Changing a route only marks its profile stale from the first changed index, and the profile is brought
+ * up to date from there the next time it is read, so capacity checks are constant-time lookups.
+ * <p>
+ * A solution also keeps a Zobrist-style 64-bit fingerprint: the XOR of a pseudo-random key for every edge of its
+ * routes, the first edge of a route joining the vehicle to its first job. A set of undirected edges describes the
+ * routes exactly, since every route is a path starting at its vehicle, and a change of a route only adds and removes
+ * a few edges (a reversal keeps the edges inside the segment), so every mutator updates the fingerprint in O(1).
+ */
+final class Solution
+{
+    private final Problem problem;
+    private final int[][] routes;
+    private final int[] sizes;
+
+    // loads[v][i] is the load of vehicle v after job i, maxLoads[v][i] the highest of loads[v][i..size - 1]
+    private final int[][] loads;
+    private final int[][] maxLoads;
+    // index of the first stale entry of the profile of every route
+    private final int[] dirtyFrom;
+    // changes of every route, so that what is derived from a route can tell when it is stale
+    private final int[] versions;
+
+    // no job, past the end of a route
+    private static final int NONE = Integer.MIN_VALUE;
+    private long fingerprint;
+
+    /**
+     * An empty solution, every route is able to hold all the tasks.
+     */
+    Solution(Problem problem)
+    {
+        int vehicles = problem.vehicleCount();
+        int jobs = 2 * problem.taskCount();
+        this.problem = problem;
+        this.routes = new int[vehicles][jobs];
+        this.sizes = new int[vehicles];
+        this.loads = new int[vehicles][jobs];
+        this.maxLoads = new int[vehicles][jobs];
+        this.dirtyFrom = new int[vehicles];
+        this.versions = new int[vehicles];
+    }
+
+    static int job(int task, int action)
+    {
+        return (task << 1) | action;
+    }
+
+    static int task(int job)
+    {
+        return job >>> 1;
+    }
+
+    static int action(int job)
+    {
+        return job & 1;
+    }
+
+    int vehicles()
+    {
+        return routes.length;
+    }
+
+    int size(int vehicle)
+    {
+        return sizes[vehicle];
+    }
+
+    boolean isEmpty(int vehicle)
+    {
+        return sizes[vehicle] == 0;
+    }
+
+    int get(int vehicle, int index)
+    {
+        return routes[vehicle][index];
+    }
+
+    /**
+     * @return the backing array of a route, only the first size(vehicle) entries are meaningful
+     */
+    int[] route(int vehicle)
+    {
+        return routes[vehicle];
+    }
+
+    void clear()
+    {
+        Arrays.fill(sizes, 0);
+        Arrays.fill(dirtyFrom, 0);
+        fingerprint = 0;
+        for (int v = 0; v < versions.length; v++)
+        {
+            versions[v]++;
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the route changes
+     */
+    int version(int vehicle)
+    {
+        return versions[vehicle];
+    }
+
+    /**
+     * @return fingerprint of the routes: equal routes have equal fingerprints, and different ones almost never do
+     */
+    long fingerprint()
+    {
+        return fingerprint;
+    }
+
+    void add(int vehicle, int job)
+    {
+        fingerprint ^= edge(node(vehicle, sizes[vehicle] - 1), job);
+        touch(vehicle, sizes[vehicle]);
+        routes[vehicle][sizes[vehicle]++] = job;
+    }
+
+    void insert(int vehicle, int index, int job)
+    {
+        int before = node(vehicle, index - 1);
+        int after = node(vehicle, index);
+        fingerprint ^= edge(before, after) ^ edge(before, job) ^ edge(job, after);
+        int[] route = routes[vehicle];
+        System.arraycopy(route, index, route, index + 1, sizes[vehicle] - index);
+        route[index] = job;
+        sizes[vehicle]++;
+        touch(vehicle, index);
+    }
+
+    int removeAt(int vehicle, int index)
+    {
+        int[] route = routes[vehicle];
+        int job = route[index];
+        int before = node(vehicle, index - 1);
+        int after = node(vehicle, index + 1);
+        fingerprint ^= edge(before, job) ^ edge(job, after) ^ edge(before, after);
+        System.arraycopy(route, index + 1, route, index, sizes[vehicle] - index - 1);
+        sizes[vehicle]--;
+        touch(vehicle, index);
+        return job;
+    }
+
+    /**
+     * @return load of the vehicle when it arrives at index, before handling the job there
+     */
+    int loadBefore(int vehicle, int index)
+    {
+        return index == 0 ? 0 : loadAfter(vehicle, index - 1);
+    }
+
+    /**
+     * @return load of the vehicle once the job at index is handled
+     */
+    int loadAfter(int vehicle, int index)
+    {
+        refresh(vehicle);
+        return loads[vehicle][index];
+    }
+
+    /**
+     * @return highest load of the vehicle from the job at index to the end of the route, 0 past the end
+     */
+    int maxLoadFrom(int vehicle, int index)
+    {
+        if (index >= sizes[vehicle])
+        {
+            return 0;
+        }
+        refresh(vehicle);
+        return maxLoads[vehicle][index];
+    }
+
+    /**
+     * Mark the profile of a route stale from index on, and the route changed.
+     */
+    private void touch(int vehicle, int index)
+    {
+        versions[vehicle]++;
+        if (index < dirtyFrom[vehicle])
+        {
+            dirtyFrom[vehicle] = index;
+        }
+    }
+
+    /**
+     * Bring the profile of a route up to date: loads from the first stale index, highest loads from the end of the
+     * route back to the point where they no longer change.
+     */
+    private void refresh(int vehicle)
+    {
+        int size = sizes[vehicle];
+        int from = dirtyFrom[vehicle];
+        if (from >= size)
+        {
+            dirtyFrom[vehicle] = size;
+            return;
+        }
+        int[] route = routes[vehicle];
+        int[] load = loads[vehicle];
+        int[] maxLoad = maxLoads[vehicle];
+        int current = from == 0 ? 0 : load[from - 1];
+        for (int i = from; i < size; i++)
+        {
+            current += problem.jobLoad(route[i]);
+            load[i] = current;
+        }
+        int highest = 0;
+        for (int i = size - 1; i >= 0; i--)
+        {
+            highest = Math.max(highest, load[i]);
+            if (i < from && maxLoad[i] == highest)
+            {
+                break;
+            }
+            maxLoad[i] = highest;
+        }
+        dirtyFrom[vehicle] = size;
+    }
+
+    /**
+     * Reverse the order of the jobs from index first to index last included.
+     */
+    void reverse(int vehicle, int first, int last)
+    {
+        if (first < last)
+        {
+            int before = node(vehicle, first - 1);
+            int head = node(vehicle, first);
+            int tail = node(vehicle, last);
+            int after = node(vehicle, last + 1);
+            fingerprint ^= edge(before, head) ^ edge(tail, after) ^ edge(before, tail) ^ edge(head, after);
+        }
+        reverse(routes[vehicle], first, last);
+        touch(vehicle, first);
+    }
+
+    /**
+     * Move the jobs [start, start + length) of a route so that they begin at index destination once moved. Moving
+     * them back from destination to start restores the route.
+     */
+    void moveSegment(int vehicle, int start, int length, int destination)
+    {
+        if (destination != start && length > 0)
+        {
+            // the same edges as in CostModel.segmentDelta
+            int before = node(vehicle, start - 1);
+            int head = node(vehicle, start);
+            int tail = node(vehicle, start + length - 1);
+            int after = node(vehicle, start + length);
+            int left = node(vehicle, destination - 1 < start ? destination - 1 : destination - 1 + length);
+            int right = node(vehicle, destination < start ? destination : destination + length);
+            fingerprint ^= edge(before, head) ^ edge(tail, after) ^ edge(before, after)
+                    ^ edge(left, right) ^ edge(left, head) ^ edge(tail, right);
+        }
+        int[] route = routes[vehicle];
+        if (destination < start)
+        {
+            rotate(route, destination, start + length, length);
+        } else if (destination > start)
+        {
+            rotate(route, start, destination + length, destination - start);
+        }
+        touch(vehicle, Math.min(start, destination));
+    }
+
+    /**
+     * @return the job at index as a node of the route graph, the vehicle itself for index -1 and NONE past the end
+     */
+    private int node(int vehicle, int index)
+    {
+        if (index < 0)
+        {
+            return -1 - vehicle;
+        }
+        return index < sizes[vehicle] ? routes[vehicle][index] : NONE;
+    }
+
+    /**
+     * @return the key of the undirected edge between two nodes, 0 when one of them is NONE; the keys are the
+     * SplitMix64 finalizer of the node pair, so no table of random keys has to be stored
+     */
+    private static long edge(int a, int b)
+    {
+        if (a == NONE || b == NONE)
+        {
+            return 0;
+        }
+        long key = Math.min(a, b) * 0x100000000L + Math.max(a, b) + 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    /**
+     * Rotate route[from, to) to the right by distance, in place.
+     */
+    private static void rotate(int[] route, int from, int to, int distance)
+    {
+        reverse(route, from, to - 1);
+        reverse(route, from, from + distance - 1);
+        reverse(route, from + distance, to - 1);
+    }
+
+    private static void reverse(int[] route, int first, int last)
+    {
+        while (first < last)
+        {
+            int job = route[first];
+            route[first++] = route[last];
+            route[last--] = job;
+        }
+    }
+
+    int indexOf(int vehicle, int job)
+    {
+        int[] route = routes[vehicle];
+        for (int i = 0; i < sizes[vehicle]; i++)
+        {
+            if (route[i] == job)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Overwrite this solution with another one of the same dimensions, without allocating.
+     */
+    void copyFrom(Solution other)
+    {
+        for (int v = 0; v < routes.length; v++)
+        {
+            System.arraycopy(other.routes[v], 0, routes[v], 0, other.sizes[v]);
+            sizes[v] = other.sizes[v];
+            int valid = Math.min(other.dirtyFrom[v], other.sizes[v]);
+            System.arraycopy(other.loads[v], 0, loads[v], 0, valid);
+            System.arraycopy(other.maxLoads[v], 0, maxLoads[v], 0, valid);
+            dirtyFrom[v] = valid;
+            versions[v]++;
+        }
+        fingerprint = other.fingerprint;
+    }
+
+    String toString(int vehicle)
+    {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < sizes[vehicle]; i++)
+        {
+            if (i > 0)
+            {
+                builder.append(", ");
+            }
+            int job = routes[vehicle][i];
+            builder.append(action(job) == CentralizedPlanner.PICKUP ? "PICKUP TASK " : "DELIVER TASK ").append(task(job));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,85 @@
+package template;
+
+/**
+ * The best solution of a plan() call, kept for the next call or written to a {@link Checkpoint}: its routes in the
+ * Solution encoding and the cities and weight behind every task id, so that the next call can recognise the tasks
+ * it still has to handle.
+ */
+final class SolutionSnapshot
+{
+    private final int[] pickupCity;
+    private final int[] deliveryCity;
+    private final int[] weight;
+    private final int[][] routes;
+
+    /**
+     * @param problem  problem the solution solves
+     * @param solution solution to keep, it is copied
+     */
+    SolutionSnapshot(Problem problem, Solution solution)
+    {
+        int tasks = problem.taskCount();
+        this.pickupCity = new int[tasks];
+        this.deliveryCity = new int[tasks];
+        this.weight = new int[tasks];
+        for (int task = 0; task < tasks; task++)
+        {
+            pickupCity[task] = problem.jobCity(Solution.job(task, CentralizedPlanner.PICKUP));
+            deliveryCity[task] = problem.jobCity(Solution.job(task, CentralizedPlanner.DELIVERY));
+            weight[task] = problem.weight(task);
+        }
+        this.routes = new int[solution.vehicles()][];
+        for (int vehicle = 0; vehicle < routes.length; vehicle++)
+        {
+            routes[vehicle] = new int[solution.size(vehicle)];
+            System.arraycopy(solution.route(vehicle), 0, routes[vehicle], 0, routes[vehicle].length);
+        }
+    }
+
+    /**
+     * @param pickupCity   pickup city id of every task
+     * @param deliveryCity delivery city id of every task
+     * @param weight       weight of every task
+     * @param routes       jobs of every vehicle, in the Solution encoding
+     */
+    SolutionSnapshot(int[] pickupCity, int[] deliveryCity, int[] weight, int[][] routes)
+    {
+        this.pickupCity = pickupCity;
+        this.deliveryCity = deliveryCity;
+        this.weight = weight;
+        this.routes = routes;
+    }
+
+    int taskCount()
+    {
+        return weight.length;
+    }
+
+    int pickupCity(int task)
+    {
+        return pickupCity[task];
+    }
+
+    int deliveryCity(int task)
+    {
+        return deliveryCity[task];
+    }
+
+    int weight(int task)
+    {
+        return weight[task];
+    }
+
+    int vehicles()
+    {
+        return routes.length;
+    }
+
+    /**
+     * @return the route of a vehicle, not to be modified
+     */
+    int[] route(int vehicle)
+    {
+        return routes[vehicle];
+    }
+}
@@ -0,0 +1,67 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Exchanges a random task with a random task of every other non-empty vehicle, each one going to its cheapest
+ * feasible position in the vehicle of the other.
+ */
+final class SwapOperator implements NeighbourOperator
+{
+    static final String NAME = "swap";
+
+    private final Problem problem;
+    private int task;
+    private int vehicle;
+    // vehicle and task exchanged in every candidate
+    private final int[] otherVehicles;
+    private final int[] otherTasks;
+
+    SwapOperator(Problem problem)
+    {
+        this.problem = problem;
+        this.otherVehicles = new int[problem.vehicleCount()];
+        this.otherTasks = new int[problem.vehicleCount()];
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public int maxCandidates()
+    {
+        return otherVehicles.length;
+    }
+
+    @Override
+    public int prepare(Solution solution, Random random)
+    {
+        vehicle = NeighbourOperators.randomVehicle(solution, random);
+        if (vehicle < 0)
+        {
+            return 0;
+        }
+        task = NeighbourOperators.randomTask(solution, vehicle, random);
+        int count = 0;
+        for (int other = 0; other < solution.vehicles(); other++)
+        {
+            if (other != vehicle && !solution.isEmpty(other))
+            {
+                otherVehicles[count] = other;
+                otherTasks[count] = NeighbourOperators.randomTask(solution, other, random);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean build(int candidate, MoveBuilder builder, Move move)
+    {
+        return builder.relocateToBest(move, otherTasks[candidate], otherVehicles[candidate], vehicle)
+                && builder.relocateToBest(move, task, vehicle, otherVehicles[candidate]);
+    }
+}
@@ -0,0 +1,69 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * Tabu search: the tasks relocated by a move become tabu for a number of iterations, and a candidate relocating a
+ * tabu task is not admissible unless it beats the best solution found so far. The cheapest admissible neighbour is
+ * always taken.
+ */
+final class TabuAcceptance implements AcceptanceStrategy
+{
+    static final String NAME = "tabu";
+
+    private final int tenure;
+    // iteration until which every task is tabu
+    private final long[] tabuUntil;
+    private long iteration;
+
+    /**
+     * @param tasks  number of tasks
+     * @param tenure iterations a relocated task stays tabu
+     */
+    TabuAcceptance(int tasks, int tenure)
+    {
+        this.tenure = tenure;
+        this.tabuUntil = new long[tasks];
+    }
+
+    @Override
+    public boolean admissible(Move move, double candidateCost, double bestCost)
+    {
+        if (candidateCost < bestCost)
+        {
+            return true;
+        }
+        for (int k = 0; k < move.steps(); k++)
+        {
+            int task = move.task(k);
+            if (task >= 0 && tabuUntil[task] > iteration)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean accept(double currentCost, double candidateCost, Random random)
+    {
+        return true;
+    }
+
+    @Override
+    public void update(Move move, boolean accepted, double currentCost)
+    {
+        iteration++;
+        if (accepted && move != null)
+        {
+            for (int k = 0; k < move.steps(); k++)
+            {
+                int task = move.task(k);
+                if (task >= 0)
+                {
+                    tabuUntil[task] = iteration + tenure;
+                }
+            }
+        }
+    }
+}
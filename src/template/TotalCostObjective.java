@@ -0,0 +1,47 @@
+package template;
+
+/**
+ * The sum of the costs of all the routes, distance times cost per kilometre: what the company pays.
+ */
+final class TotalCostObjective implements Objective
+{
+    static final String NAME = "total-cost";
+
+    private final double lowerBound;
+    private double total;
+
+    TotalCostObjective(Problem problem)
+    {
+        this.lowerBound = LowerBound.totalCost(problem);
+    }
+
+    @Override
+    public double value(double[] routeCost)
+    {
+        double sum = 0;
+        for (double cost : routeCost)
+        {
+            sum += cost;
+        }
+        return sum;
+    }
+
+    @Override
+    public double update(double[] routeCost)
+    {
+        total = value(routeCost);
+        return total;
+    }
+
+    @Override
+    public double valueAfter(double[] routeCost, Move move)
+    {
+        return total + move.delta();
+    }
+
+    @Override
+    public double lowerBound()
+    {
+        return lowerBound;
+    }
+}
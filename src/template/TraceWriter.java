@@ -0,0 +1,105 @@
+package template;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampled trace of the search: one line every sample iterations, with the time since the trace was opened, the
+ * iteration and the arguments of iterationDone, separated by tabs. Only the sampled iterations take the lock and
+ * touch the buffered file, so the trace costs an atomic increment per iteration otherwise. Writing errors stop the
+ * trace, they never stop the search.
+ */
+final class TraceWriter implements SearchListener, Closeable
+{
+    private final Writer out;
+    private final int sample;
+    private final AtomicLong iterations = new AtomicLong();
+    private final long start = System.nanoTime();
+    private final StringBuilder line = new StringBuilder();
+    private boolean failed;
+
+    /**
+     * @param file   file the trace is appended to
+     * @param sample one iteration out of sample is written
+     */
+    TraceWriter(String file, int sample) throws IOException
+    {
+        this.out = new BufferedWriter(new FileWriter(file, true));
+        this.sample = sample;
+        out.write("# micros\titeration\tneighbours\taccepted\tcurrent cost\tbest cost\tgenerate nanos\tchoose nanos\n");
+    }
+
+    @Override
+    public void iterationDone(int neighbours, boolean accepted, double currentCost, double bestCost,
+                              long generateNanos, long chooseNanos)
+    {
+        long iteration = iterations.incrementAndGet();
+        if (iteration % sample == 0)
+        {
+            write(iteration, neighbours, accepted, currentCost, bestCost, generateNanos, chooseNanos);
+        }
+    }
+
+    private synchronized void write(long iteration, int neighbours, boolean accepted, double currentCost,
+                                    double bestCost, long generateNanos, long chooseNanos)
+    {
+        if (failed)
+        {
+            return;
+        }
+        line.setLength(0);
+        line.append((System.nanoTime() - start) / 1000).append('\t')
+                .append(iteration).append('\t')
+                .append(neighbours).append('\t')
+                .append(accepted ? 1 : 0).append('\t')
+                .append(currentCost).append('\t')
+                .append(bestCost).append('\t')
+                .append(generateNanos).append('\t')
+                .append(chooseNanos).append('\n');
+        try
+        {
+            out.append(line);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    /**
+     * Write lines of text as comments of the trace, each starting with "# ".
+     */
+    synchronized void comment(String text)
+    {
+        if (failed || text.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            for (String textLine : text.split("\n"))
+            {
+                out.append("# ").append(textLine).append('\n');
+            }
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        failed = true;
+        out.close();
+    }
+
+    private void fail(IOException e)
+    {
+        failed = true;
+        System.out.println("The search trace could not be written: " + e.getMessage());
+    }
+}
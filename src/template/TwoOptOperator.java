@@ -0,0 +1,51 @@
+package template;
+
+import java.util.Random;
+
+/**
+ * 2-opt within a route: reverses every segment starting at a random index of a random route. Segments holding both
+ * jobs of a task are skipped, their reversal would deliver before picking up.
+ */
+final class TwoOptOperator implements NeighbourOperator
+{
+    static final String NAME = "2-opt";
+
+    private final Problem problem;
+    private int vehicle;
+    private int first;
+
+    TwoOptOperator(Problem problem)
+    {
+        this.problem = problem;
+    }
+
+    @Override
+    public String name()
+    {
+        return NAME;
+    }
+
+    @Override
+    public int maxCandidates()
+    {
+        return 2 * problem.taskCount();
+    }
+
+    @Override
+    public int prepare(Solution solution, Random random)
+    {
+        vehicle = NeighbourOperators.randomVehicle(solution, random);
+        if (vehicle < 0 || solution.size(vehicle) < 3)
+        {
+            return 0;
+        }
+        first = random.nextInt(solution.size(vehicle) - 1);
+        return solution.size(vehicle) - 1 - first;
+    }
+
+    @Override
+    public boolean build(int candidate, MoveBuilder builder, Move move)
+    {
+        return builder.reverse(move, vehicle, first, first + 1 + candidate);
+    }
+}
@@ -0,0 +1,52 @@
+package template;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of the fingerprints of solutions the search has already been in (see Solution.fingerprint()). It
+ * is a direct-mapped table: a new fingerprint overwrites the one in its slot, so the cache forgets the oldest
+ * solutions first, more or less, and never allocates. A lookup may miss a solution that was visited, never the
+ * other way around, except for a fingerprint collision.
+ */
+final class VisitedSolutions
+{
+    private final long[] table;
+    private final int mask;
+    // 0 is the fingerprint of the empty solution, and also what an unused slot holds
+    private boolean empty;
+
+    /**
+     * @param size number of solutions kept, rounded up to a power of two
+     */
+    VisitedSolutions(int size)
+    {
+        int slots = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.table = new long[slots];
+        this.mask = slots - 1;
+    }
+
+    void add(long fingerprint)
+    {
+        if (fingerprint == 0)
+        {
+            empty = true;
+        }
+        table[slot(fingerprint)] = fingerprint;
+    }
+
+    boolean contains(long fingerprint)
+    {
+        return fingerprint == 0 ? empty : table[slot(fingerprint)] == fingerprint;
+    }
+
+    void clear()
+    {
+        Arrays.fill(table, 0);
+        empty = false;
+    }
+
+    private int slot(long fingerprint)
+    {
+        return (int) (fingerprint ^ fingerprint >>> 32) & mask;
+    }
+}
@@ -0,0 +1,45 @@
+package template;
+
+/**
+ * The total cost plus a price per hour of makespan, see TotalCostObjective and MakespanObjective.
+ */
+final class WeightedObjective implements Objective
+{
+    static final String NAME = "weighted";
+
+    private final TotalCostObjective totalCost;
+    private final MakespanObjective makespan;
+    // cost of an hour of makespan
+    private final double makespanWeight;
+
+    WeightedObjective(Problem problem, double makespanWeight)
+    {
+        this.totalCost = new TotalCostObjective(problem);
+        this.makespan = new MakespanObjective(problem);
+        this.makespanWeight = makespanWeight;
+    }
+
+    @Override
+    public double value(double[] routeCost)
+    {
+        return totalCost.value(routeCost) + makespanWeight * makespan.value(routeCost);
+    }
+
+    @Override
+    public double update(double[] routeCost)
+    {
+        return totalCost.update(routeCost) + makespanWeight * makespan.update(routeCost);
+    }
+
+    @Override
+    public double valueAfter(double[] routeCost, Move move)
+    {
+        return totalCost.valueAfter(routeCost, move) + makespanWeight * makespan.valueAfter(routeCost, move);
+    }
+
+    @Override
+    public double lowerBound()
+    {
+        return totalCost.lowerBound() + makespanWeight * makespan.lowerBound();
+    }
+}